@@ -60,6 +60,24 @@ public class BiListDeque<T> {
         }
     }
 
+    /**
+     * Replaces the element at the specified index. If the index lies beyond either end,
+     * the deque is first extended up to it with {@code null} elements.
+     *
+     * @param index the index of the element to replace
+     * @param value the element to store, may be {@code null}
+     */
+    public void set(int index, T value) {
+        if (index >= 0) {
+            while (right.size() <= index) right.add(null);
+            right.set(index, value);
+        } else {
+            int k = -index - NEGATIVE_INDEX_OFFSET;
+            while (left.size() <= k) left.add(null);
+            left.set(k, value);
+        }
+    }
+
     /**
      * Checks if an index is valid for this deque.
      *
@@ -2,35 +2,57 @@ package pepse;
 import danogl.GameManager;
 import danogl.GameObject;
 import danogl.collisions.Layer;
+import danogl.components.CoordinateSpace;
 import danogl.gui.ImageReader;
 import danogl.gui.SoundReader;
 import danogl.gui.UserInputListener;
 import danogl.gui.WindowController;
 import danogl.gui.rendering.Camera;
+import danogl.gui.rendering.TextRenderable;
 import danogl.util.Vector2;
+import pepse.metrics.ChunkGeneratedEvent;
+import pepse.metrics.ChunkTransitionEvent;
+import pepse.metrics.FrameEvent;
+import pepse.metrics.QualityLevelEvent;
+import pepse.net.SpectatorPublisher;
+import pepse.replay.InputRecorder;
+import pepse.replay.InputReplayer;
+import pepse.replay.LiveInput;
+import pepse.replay.TickInput;
+import pepse.replay.TickTimingLog;
+import pepse.save.GameSnapshot;
+import pepse.utils.AllocationBudgets;
+import pepse.utils.FixedTimestep;
+import pepse.utils.FrameAllocationReport;
+import pepse.utils.ImageCache;
+import pepse.utils.QualityGovernor;
 import pepse.world.*;
 import pepse.world.avatar.Avatar;
 import pepse.world.avatar.EnergyDisplay;
 import pepse.world.daynight.Night;
 import pepse.world.daynight.Sun;
 import pepse.world.daynight.SunHalo;
+import pepse.world.daynight.SunOrbit;
 
+import java.awt.event.KeyEvent;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.List;
 
 import pepse.world.trees.Flora;
 import pepse.world.trees.Fruit;
+import pepse.world.trees.Leaf;
 import pepse.world.trees.Tree;
 
 /**
  * Manages the Pepse game world:
  * - Initializes terrain, flora, sky, day/night cycle, and avatar
- * - Dynamically loads and unloads chunks as the avatar moves
+ * - Dynamically loads and unloads chunks around the avatar (and any observers)
  * - Handles UI elements such as the energy display
  */
 public class PepseGameManager extends GameManager {
 
-    private static final int INITIAL_LEFT_CHUNK_OFFSET = 1;
-    private static final int FAR_CHUNK_DISTANCE = 2;
+    private static final int RETAINED_CHUNKS_PER_VIEWER = 2;
     private static final float HALF_FACTOR = 0.5f;
 
     private static final int SKY_LAYER = Layer.BACKGROUND;
@@ -40,21 +62,80 @@ public class PepseGameManager extends GameManager {
     private static final int UI_LAYER = Layer.UI;
 
     private static final String SURFACE_TAG = "surface";
-    private static final float DAY_CYCLE_LENGTH = 30f;
     private static final float SUN_CYCLE_LENGTH = 60f;
     private static final int TERRAIN_SEED = 30;
 
     private static final float AVATAR_SIZE = 50f;
     private static final Vector2 ENERGY_DISPLAY_POS = new Vector2(5, 5);
     private static final Vector2 ENERGY_DISPLAY_SIZE = new Vector2(20, 20);
-    private static final int FIRST_CHUNKS = 3;
+    private static final Vector2 QUALITY_DISPLAY_POS = new Vector2(5, 30);
+    private static final Vector2 QUALITY_DISPLAY_SIZE = new Vector2(160, 20);
+    private static final String QUALITY_FORMAT = "quality: %s";
+
+    // ---- Lazy deep terrain ----
+    private static final int DEPTH_BAND_ROWS = 5;
+    private static final int DEPTH_BAND_HEIGHT = DEPTH_BAND_ROWS * Block.SIZE;
+    private static final int DEPTH_VIEW_MARGIN = 2 * Block.SIZE;
+
+    // ---- Viewport culling ----
+    private static final float CULL_MARGIN = 4 * Block.SIZE;
+    private static final int CANOPY_LEAVES_PER_FRAME = 120;
+
+    // ---- Simulation ----
+    private static final int SIMULATION_TICK_RATE = 60;
+    private static final int MAX_TICKS_PER_FRAME = 5;
+    private static final float OBSERVER_SPEED = 400f / SIMULATION_TICK_RATE;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    // ---- Diagnostics ----
+    private static final String ALLOCATION_REPORT_PROPERTY = "pepse.allocationReport";
+    private static final String ALLOCATION_BUDGETS_PROPERTY = "pepse.allocationBudgets";
+    private static final String FRAME_BUDGET = "frame.steadyState";
+    private static final String TIME_SCALE_PROPERTY = "pepse.timeScale";
+    private static final String RECORD_PROPERTY = "pepse.record";
+    private static final String REPLAY_PROPERTY = "pepse.replay";
+    private static final String TIMINGS_PROPERTY = "pepse.timings";
+    private static final String OBSERVERS_PROPERTY = "pepse.observers";
+    private static final String SPECTATOR_PORT_PROPERTY = "pepse.spectatorPort";
+    private static final String GROUNDING_PROPERTY = "pepse.grounding";
+    private static final String DENSITY_PROPERTY = "pepse.density";
+    private static final String DENSITY_FILE_PROPERTY = "pepse.densityProfiles";
+    private static final String DEFAULT_DENSITY_FILE = "density-profiles.properties";
+    private static final String HEIGHTFIELD_GROUNDING = "heightfield";
+    private static final String SAVE_PROPERTY = "pepse.save";
+    private static final String DEFAULT_SAVE_FILE = "pepse.sav";
+    private static final String RESUME_PROPERTY = "pepse.resume";
+    private static final int SAVE_KEY = KeyEvent.VK_F5;
+    private static final String QUALITY_PROPERTY = "pepse.quality";
+    private static final String AUTO_QUALITY = "auto";
+    private static final int TARGET_FRAME_RATE = 60;
 
     private Avatar avatar;
     private Terrain terrain_generator;
     private Flora flora_generator;
-    private BiListDeque<Chunk> chunks;
-    private int current_chunk;
+    private ChunkResidency residency;
+    private final ArrayList<WalkingObserver> observers = new ArrayList<>();
     private Vector2 windowDimensions;
+    private WorldClock clock;
+    private Night night;
+    private FrameAllocationReport allocationReport;
+    private WindowController windowController;
+    private TickInput input;
+    private InputReplayer replayer;
+    private TickTimingLog timingLog;
+    private SpectatorPublisher spectators;
+    private int surfaceLayer = Layer.STATIC_OBJECTS;
+    private final ArrayDeque<Tree> growingCanopies = new ArrayDeque<>();
+    private int worldSeed = TERRAIN_SEED;
+    private UserInputListener userInput;
+    private GameSnapshot resumed;   // until the world around the saved avatar is restored
+    private QualityLevel quality = QualityLevel.MEDIUM;
+    private QualityGovernor governor;
+    private TextRenderable qualityText;
+    private final FixedTimestep simulationStep =
+            new FixedTimestep(SIMULATION_TICK_RATE, MAX_TICKS_PER_FRAME);
+    private Vector2 avatarPreviousTick;    // the avatar's top-left before the last tick
+    private Vector2 avatarLastTick;        // and after it
 
 
     /**
@@ -81,159 +162,560 @@ public class PepseGameManager extends GameManager {
                                WindowController windowController) {
         super.initializeGame(imageReader, soundReader, inputListener, windowController);
 
+        this.windowController = windowController;
         windowDimensions = windowController.getWindowDimensions();
+        loadSnapshot();
+        createInput(inputListener);
+        if (Boolean.getBoolean(ALLOCATION_REPORT_PROPERTY)) {
+            createAllocationReport();
+        }
 
-        createSky();
         createDayNightCycle();
-        createFirstChunks();
-        createAvatar(imageReader, inputListener);
+        createGenerators();
+        if (resumed != null) resumed.restoreFruits(flora_generator);
+        createAvatar(new ImageCache(imageReader));
+        createQuality();
+        createResidency();
         createUI();
+        if (resumed != null) resumed.restoreChunks(residency);
+        resumed = null;
     }
 
     /**
      * Updates the game state each frame.
+     * <p>
+     * The simulation runs in fixed-length ticks, as many as the frame's time covers up to a
+     * cap: each tick takes the avatar's input, energy and chunk streaming, then moves the
+     * world and resolves collisions with the tick's length. The avatar is then drawn
+     * between its last two tick positions, by how far the next tick is, so its motion
+     * stays smooth at any frame rate. Viewport-dependent work runs once per frame.
+     * Each update is recorded as a {@link FrameEvent} when flight recording is on.
      *
      * @param delta Time elapsed since last update in seconds.
      */
     @Override
     public void update(float delta) {
-        super.update(delta);
-        handleAvatarLocation();
+        long updateStart = System.nanoTime();
+        FrameEvent frameEvent = new FrameEvent();
+        frameEvent.begin();
+        if (allocationReport != null) allocationReport.frameStarted(delta);
+        clock.nextFrame();
+
+        // the simulation goes on from where the last tick left the avatar
+        avatar.setTopLeftCorner(avatarLastTick);
+        int ticks = simulationStep.advance(delta);
+        for (int i = 0; i < ticks; i++) {
+            input.nextTick();
+            // a replay stops at its last tick, whichever frame that falls in
+            if (replayer != null && replayer.isFinished()) break;
+            clock.advance(simulationStep.tickLength());
+            avatar.tick();
+            for (WalkingObserver observer : observers) observer.tick();
+            residency.update();
+            avatarPreviousTick = avatarLastTick;
+            super.update(simulationStep.tickLength());
+            avatarLastTick = avatar.getTopLeftCorner();
+        }
+        if (userInput.wasKeyPressedThisFrame(SAVE_KEY)) {
+            saveGame();
+        }
+        interpolateAvatar(simulationStep.alpha());
+
+        if (quality.hasDeepTerrain()) generateVisibleDepth();
+        cullCanopies();
+        growCanopies();
+        if (spectators != null) {
+            spectators.publishFrame(avatar, clock.time(), residency.activeChunks());
+        }
+        if (governor != null && governor.frame(delta)) {
+            setQuality(QualityLevel.values()[governor.level()]);
+        }
+
+        if (timingLog != null) {
+            timingLog.logFrame(delta, ticks, System.nanoTime() - updateStart, countWorldObjects());
+        }
+        if (frameEvent.shouldCommit()) {
+            frameEvent.delta = (long) (delta * NANOS_PER_SECOND);
+            frameEvent.ticks = ticks;
+            frameEvent.activeChunks = residency.activeChunks().size();
+            frameEvent.quality = quality.name();
+            frameEvent.commit();
+        }
+        if (replayer != null && replayer.isFinished()) {
+            finishReplay();
+        }
+    }
+
+    // draws the avatar, and frames the camera, a fraction of the way into the next tick
+    private void interpolateAvatar(float alpha) {
+        Vector2 from = avatarPreviousTick;
+        Vector2 to = avatarLastTick;
+        if (alpha == 0f || from.x() == to.x() && from.y() == to.y()) return;
+        avatar.transform().setTopLeftCorner(from.x() + (to.x() - from.x()) * alpha,
+                from.y() + (to.y() - from.y()) * alpha);
+        if (camera() != null) camera().update(0f);
     }
 
-    private void handleAvatarLocation() {
-        int W = (int) windowDimensions.x();
-        int avatarX = (int) avatar.getCenter().x();
-        int chunkId = Math.floorDiv(avatarX, W);
+    /**
+     * Reads the saved game named by {@value RESUME_PROPERTY}, if set: the world is then
+     * generated from its seed and density profile, and the clock and avatar start where
+     * they were saved. A resumed game cannot be recorded or replayed, since a recording
+     * starts from a new world.
+     */
+    private void loadSnapshot() {
+        String resumePath = System.getProperty(RESUME_PROPERTY);
+        if (resumePath == null) return;
+        if (System.getProperty(REPLAY_PROPERTY) != null
+                || System.getProperty(RECORD_PROPERTY) != null) {
+            throw new IllegalStateException("a resumed game cannot be recorded or replayed");
+        }
+        resumed = GameSnapshot.read(resumePath);
+        resumed.checkWindow(windowDimensions);
+        worldSeed = resumed.seed();
+    }
 
-        if (chunkId == current_chunk) return;
+    /**
+     * Writes the game's state to the {@value SAVE_PROPERTY} file, by default
+     * {@value DEFAULT_SAVE_FILE}, to be resumed with {@value RESUME_PROPERTY}.
+     */
+    private void saveGame() {
+        String path = System.getProperty(SAVE_PROPERTY, DEFAULT_SAVE_FILE);
+        GameSnapshot.capture(worldSeed, flora_generator.getDensityProfile(), windowDimensions,
+                clock.time(), avatar, residency.activeChunks(), residency.retainedChunks(),
+                flora_generator.getReleasedFruits()).write(path);
+    }
 
-        int dir = Integer.compare(chunkId, current_chunk); // +1 right, -1 left
+    /**
+     * Selects where the avatar's input comes from: the keyboard, the keyboard while
+     * recording it ({@value RECORD_PROPERTY}), or a recording ({@value REPLAY_PROPERTY}),
+     * in which case the world is generated from the recording's seed.
+     * A per-frame timing log is written if {@value TIMINGS_PROPERTY} is set.
+     */
+    private void createInput(UserInputListener inputListener) {
+        userInput = inputListener;
+        String replayPath = System.getProperty(REPLAY_PROPERTY);
+        String recordPath = System.getProperty(RECORD_PROPERTY);
+        String timingsPath = System.getProperty(TIMINGS_PROPERTY);
+
+        if (replayPath != null) {
+            replayer = new InputReplayer(replayPath);
+            if (replayer.tickRate() != SIMULATION_TICK_RATE) {
+                throw new IllegalStateException("recording was made at "
+                        + replayer.tickRate() + " ticks per second");
+            }
+            worldSeed = replayer.seed();
+            input = replayer;
+        } else if (recordPath != null) {
+            InputRecorder recorder = new InputRecorder(
+                    inputListener::isKeyPressed, recordPath, SIMULATION_TICK_RATE, worldSeed);
+            Runtime.getRuntime().addShutdownHook(new Thread(recorder::close));
+            input = recorder;
+        } else {
+            input = new LiveInput(inputListener::isKeyPressed);
+        }
 
-        int toEnable = chunkId + dir;        // new forward neighbor
-        int toDisable = chunkId - FAR_CHUNK_DISTANCE * dir;   // old far neighbor behind
+        if (timingsPath != null) {
+            timingLog = new TickTimingLog(timingsPath);
+            Runtime.getRuntime().addShutdownHook(new Thread(timingLog::close));
+        }
+    }
 
-        // Enable/create forward neighbor
-        if (chunks.isValidIndex(toEnable)) {
-            enableChunk(chunks.get(toEnable));
+    /**
+     * Creates the allocation report, checking steady-state frames against the
+     * {@value FRAME_BUDGET} budget of the {@value ALLOCATION_BUDGETS_PROPERTY} file if set.
+     */
+    private void createAllocationReport() {
+        String budgetsPath = System.getProperty(ALLOCATION_BUDGETS_PROPERTY);
+        if (budgetsPath == null) {
+            allocationReport = new FrameAllocationReport();
         } else {
-            int minX = toEnable * W;
-            int maxX = (toEnable + INITIAL_LEFT_CHUNK_OFFSET) * W;
-            createChunkIn(minX, maxX);
+            long budget = AllocationBudgets.load(budgetsPath).get(FRAME_BUDGET);
+            allocationReport = new FrameAllocationReport(budget);
+        }
+    }
+
+    private void finishReplay() {
+        replayer = null;
+        if (timingLog != null) timingLog.close();
+        windowController.closeWindow();
+    }
+
+    /**
+     * Adds the canopies (leaves and fruits) of trees that are inside the camera's viewport
+     * plus a margin, and removes those outside it, so off-screen leaves are neither
+     * rendered nor updated. Removed canopies are dematerialized: their leaf and fruit
+     * objects go back to the pool until the tree comes into view again. Added canopies get
+     * their fruits at once and their leaves through {@link #growCanopies()}.
+     * Whole chunks are tested first by their bounding box.
+     */
+    private void cullCanopies() {
+        if (camera() == null) return;
+
+        Vector2 viewTopLeft = camera().getTopLeftCorner();
+        Vector2 viewSize = camera().getDimensions();
+        float minX = viewTopLeft.x() - CULL_MARGIN;
+        float minY = viewTopLeft.y() - CULL_MARGIN;
+        float maxX = viewTopLeft.x() + viewSize.x() + CULL_MARGIN;
+        float maxY = viewTopLeft.y() + viewSize.y() + CULL_MARGIN;
+
+        List<Chunk> active = residency.activeChunks();
+        for (int i = 0; i < active.size(); i++) {
+            Chunk chunk = active.get(i);
+            boolean chunkVisible = chunk.intersects(minX, minY, maxX, maxY);
+            for (Tree tree : chunk.getTrees()) {
+                setCanopyInGame(tree, chunkVisible && tree.intersects(minX, minY, maxX, maxY));
+            }
         }
+    }
 
-        // Disable far neighbor behind
-        if (chunks.isValidIndex(toDisable)) {
-            disableChunk(chunks.get(toDisable));
+    /**
+     * Adds the leaves of canopies that came into view, a few at a time: at most
+     * {@value CANOPY_LEAVES_PER_FRAME} per frame in total, the oldest canopy first, so a
+     * chunk crossing does not add every leaf of every new canopy in one frame. A canopy
+     * grows only to the share of its leaves the quality level allows.
+     */
+    private void growCanopies() {
+        int budget = CANOPY_LEAVES_PER_FRAME;
+        while (budget > 0 && !growingCanopies.isEmpty()) {
+            Tree tree = growingCanopies.peekFirst();
+            List<Leaf> leaves = tree.getTreeLeaves();
+            int first = leaves.size();
+            int target = canopyLeafTarget(tree);
+            int added = tree.materializeNextLeaves(Math.min(budget, Math.max(0, target - first)));
+            for (int i = first; i < first + added; i++) {
+                gameObjects().addGameObject(leaves.get(i), Layer.FOREGROUND);
+            }
+            budget -= added;
+            if (added > 0) markGeneration();
+            // culled again, or done
+            if (leaves.size() >= target || !tree.isCanopyMaterialized()) {
+                growingCanopies.pollFirst();
+            }
         }
+    }
 
-        current_chunk = chunkId;
+    // the number of leaves, innermost first, a canopy has at the current quality
+    private int canopyLeafTarget(Tree tree) {
+        return (int) Math.ceil(tree.getLeafCount() * quality.getCanopyLeafFraction());
     }
 
-    private void disableChunk(Chunk chunk) {
-        for (Block block : chunk.getBlocks()) {
-            if (SURFACE_TAG.equals(block.getTag())) {
-                gameObjects().removeGameObject(block, Layer.STATIC_OBJECTS);
-            } else {
-                gameObjects().removeGameObject(block, DEEP_GROUND_LAYER);
+    /**
+     * Selects the quality level from {@value QUALITY_PROPERTY}: a level's name fixes it, and
+     * {@value AUTO_QUALITY} lets a governor step through the levels from
+     * {@link QualityLevel#MEDIUM}, keeping the 95th percentile of frame times near
+     * {@value TARGET_FRAME_RATE} frames per second. Without the property the level stays at
+     * {@link QualityLevel#MEDIUM}: frame times include the wait for a frame rate cap, so
+     * under a cap below the target the governor would lower the level of any machine.
+     */
+    private void createQuality() {
+        String level = System.getProperty(QUALITY_PROPERTY, quality.name());
+        if (level.equals(AUTO_QUALITY)) {
+            governor = new QualityGovernor(
+                    TARGET_FRAME_RATE, QualityLevel.values().length, quality.ordinal());
+        } else {
+            quality = QualityLevel.valueOf(level.toUpperCase());
+        }
+        flora_generator.setLeafAnimationStride(quality.getLeafAnimationStride());
+    }
+
+    /**
+     * Switches to another quality level: leaf animation rate, chunk radius and deep terrain
+     * take effect at once, and materialized canopies are trimmed or queued to grow to
+     * their new size.
+     */
+    private void setQuality(QualityLevel level) {
+        QualityLevelEvent.record(quality, level, governor.percentile());
+        quality = level;
+        qualityText.setString(String.format(QUALITY_FORMAT, level.name().toLowerCase()));
+
+        flora_generator.setLeafAnimationStride(level.getLeafAnimationStride());
+        residency.setInterestRadius(level.getChunkInterestRadius());
+        List<Chunk> active = residency.activeChunks();
+        for (int i = 0; i < active.size(); i++) {
+            for (Tree tree : active.get(i).getTrees()) {
+                if (!tree.isCanopyMaterialized()) continue;
+                List<Leaf> leaves = tree.getTreeLeaves();
+                int target = canopyLeafTarget(tree);
+                if (leaves.size() < target) {
+                    growingCanopies.addLast(tree);
+                    continue;
+                }
+                for (int leaf = target; leaf < leaves.size(); leaf++) {
+                    gameObjects().removeGameObject(leaves.get(leaf), Layer.FOREGROUND);
+                }
+                tree.dematerializeLeavesFrom(target);
             }
         }
+        markGeneration();
+    }
 
-        for (Tree tree : chunk.getTrees()) {
-            gameObjects().removeGameObject(tree.getTreeBase(), Layer.STATIC_OBJECTS);
+    // a canopy entering the game gets its fruits at once and its leaves over the next frames
+    private void setCanopyInGame(Tree tree, boolean inGame) {
+        if (tree.isCanopyMaterialized() == inGame) return;
+        if (inGame) {
+            tree.beginCanopy();
+            growingCanopies.addLast(tree);
+        }
 
-            for (GameObject leaf : tree.getTreeLeaves()) {
+        for (GameObject leaf : tree.getTreeLeaves()) {
+            if (inGame) {
+                gameObjects().addGameObject(leaf, Layer.FOREGROUND);
+            } else {
                 gameObjects().removeGameObject(leaf, Layer.FOREGROUND);
             }
+        }
 
-            for (Fruit fruit : tree.getFruits()) {
+        for (Fruit fruit : tree.getFruits()) {
+            if (inGame) {
+                gameObjects().addGameObject(fruit, Layer.STATIC_OBJECTS);
+            } else {
                 gameObjects().removeGameObject(fruit, Layer.STATIC_OBJECTS);
             }
         }
+        if (!inGame) tree.dematerializeCanopy();
+        markGeneration();
     }
 
-    private void enableChunk(Chunk chunk) {
+    /**
+     * Extends the terrain of the active chunks downwards, one band at a time,
+     * until it covers the bottom of the camera's viewport plus a margin.
+     */
+    private void generateVisibleDepth() {
+        int targetBottom = depthTarget();
+        List<Chunk> active = residency.activeChunks();
+        for (int i = 0; i < active.size(); i++) {
+            Chunk chunk = active.get(i);
+            int bottom = chunk.getGeneratedBottom();
+            if (bottom >= targetBottom) continue;
+
+            ArrayList<Block> band = terrain_generator.createInRange(
+                    chunk.getMinX(), chunk.getMaxX(), bottom, targetBottom);
+            addBlocks(band);
+            chunk.addDepthBand(band, targetBottom);
+            markGeneration();
+        }
+    }
+
+    /**
+     * @return the band-aligned Y-coordinate terrain must reach to fill the viewport,
+     * clamped to the terrain bottom
+     */
+    private int depthTarget() {
+        float viewBottom = camera() == null
+                ? windowDimensions.y()
+                : camera().getTopLeftCorner().y() + camera().getDimensions().y();
+        int needed = (int) Math.ceil(viewBottom) + DEPTH_VIEW_MARGIN;
+        int aligned = Math.floorDiv(needed + DEPTH_BAND_HEIGHT - 1, DEPTH_BAND_HEIGHT)
+                * DEPTH_BAND_HEIGHT;
+        return Math.min(aligned, terrain_generator.getTerrainBottom());
+    }
+
+    private void releaseChunk(Chunk chunk) {
+        terrain_generator.releaseBlocks(chunk.getBlocks());
+        flora_generator.releaseTrees(chunk.getTrees());
+        ChunkTransitionEvent.record(
+                residency.chunkIdAt(chunk.getMinX()), ChunkTransitionEvent.RELEASED);
+        if (spectators != null) spectators.chunkReleased(chunk);
+    }
+
+    private void disableChunk(Chunk chunk) {
         for (Block block : chunk.getBlocks()) {
-            // NOTE: for avatar stability, it's OK if deep blocks don't collide,
-            // but surface blocks MUST collide & be in a collidable layer.
             if (SURFACE_TAG.equals(block.getTag())) {
-                gameObjects().addGameObject(block, Layer.STATIC_OBJECTS);
+                gameObjects().removeGameObject(block, surfaceLayer);
             } else {
-                gameObjects().addGameObject(block, DEEP_GROUND_LAYER);
+                gameObjects().removeGameObject(block, DEEP_GROUND_LAYER);
             }
         }
 
         for (Tree tree : chunk.getTrees()) {
-            gameObjects().addGameObject(tree.getTreeBase(), Layer.STATIC_OBJECTS);
+            gameObjects().removeGameObject(tree.getTreeBase(), Layer.STATIC_OBJECTS);
+            setCanopyInGame(tree, false);
+        }
+        ChunkTransitionEvent.record(
+                residency.chunkIdAt(chunk.getMinX()), ChunkTransitionEvent.DISABLED);
+        if (spectators != null) spectators.chunkDisabled(chunk);
+    }
 
-            for (GameObject leaf : tree.getTreeLeaves()) {
-                gameObjects().addGameObject(leaf, Layer.FOREGROUND);
-            }
+    private void enableChunk(Chunk chunk) {
+        addBlocks(chunk.getBlocks());
 
-            for (Fruit fruit : tree.getFruits()) {
-                gameObjects().addGameObject(fruit, Layer.STATIC_OBJECTS);
-            }
+        // canopies are added by the culling pass once they come into view
+        for (Tree tree : chunk.getTrees()) {
+            gameObjects().addGameObject(tree.getTreeBase(), Layer.STATIC_OBJECTS);
         }
+        ChunkTransitionEvent.record(
+                residency.chunkIdAt(chunk.getMinX()), ChunkTransitionEvent.ENABLED);
+        if (spectators != null) spectators.chunkEnabled(chunk);
     }
 
-    private void createFirstChunks() {
-        terrain_generator = new Terrain(windowDimensions, TERRAIN_SEED);
-        flora_generator = new Flora(terrain_generator::groundHeightAt);
-        chunks = new BiListDeque<>();
-
-        int windowsDimX = (int) windowDimensions.x();
-        int initialX = -windowsDimX;
+    private void addBlocks(ArrayList<Block> blocks) {
+        for (Block block : blocks) {
+            // NOTE: for avatar stability, it's OK if deep blocks don't collide,
+            // but surface blocks MUST collide & be in a collidable layer,
+            // unless the avatar is grounded by the heightfield.
+            if (SURFACE_TAG.equals(block.getTag())) {
+                gameObjects().addGameObject(block, surfaceLayer);
+            } else {
+                gameObjects().addGameObject(block, DEEP_GROUND_LAYER);
+            }
+        }
+    }
 
-        for (int i = 0; i < FIRST_CHUNKS; i++) {
-            int minX = initialX + windowsDimX * i;
-            int maxX = initialX + windowsDimX * (i + 1);
-            createChunkIn(minX, maxX);
+    /**
+     * Creates the terrain and flora generators, with the {@value DENSITY_PROPERTY} profile
+     * of the {@value DENSITY_FILE_PROPERTY} file if set, and a publisher streaming the world
+     * to a spectator process if {@value SPECTATOR_PORT_PROPERTY} is set.
+     */
+    private void createGenerators() {
+        String densityName = System.getProperty(DENSITY_PROPERTY);
+        DensityProfile density = DensityProfile.DEFAULT;
+        if (resumed != null) {
+            density = resumed.density();
+        } else if (densityName != null) {
+            density = DensityProfile.load(
+                    System.getProperty(DENSITY_FILE_PROPERTY, DEFAULT_DENSITY_FILE), densityName);
         }
+        terrain_generator = new Terrain(windowDimensions, worldSeed, density, night);
+        flora_generator = new Flora(terrain_generator::groundHeightAt, density, night, clock);
+
+        Integer spectatorPort = Integer.getInteger(SPECTATOR_PORT_PROPERTY);
+        if (spectatorPort != null) {
+            spectators = new SpectatorPublisher(
+                    spectatorPort, worldSeed, density, windowDimensions);
+            flora_generator.setFruitListener(spectators);
+            Runtime.getRuntime().addShutdownHook(new Thread(spectators::close));
+        }
+    }
 
-        current_chunk = 0;
+    /**
+     * Streams chunks around the avatar, and around {@value OBSERVERS_PROPERTY} observers
+     * walking away from it in alternating directions, if that property is set.
+     * With {@value GROUNDING_PROPERTY}={@value HEIGHTFIELD_GROUNDING} the avatar is
+     * grounded by the terrain heights and the trunks of the active chunks, and surface
+     * blocks are added to a layer that does not collide.
+     */
+    private void createResidency() {
+        residency = new ChunkResidency((int) windowDimensions.x(),
+                quality.getChunkInterestRadius(),
+                RETAINED_CHUNKS_PER_VIEWER, new ChunkResidency.ChunkLifecycle() {
+                    @Override
+                    public Chunk create(int chunkId) {
+                        return createChunk(chunkId);
+                    }
+
+                    @Override
+                    public void enable(Chunk chunk) {
+                        enableChunk(chunk);
+                    }
+
+                    @Override
+                    public void disable(Chunk chunk) {
+                        disableChunk(chunk);
+                    }
+
+                    @Override
+                    public void release(Chunk chunk) {
+                        releaseChunk(chunk);
+                    }
+                });
+        if (HEIGHTFIELD_GROUNDING.equals(System.getProperty(GROUNDING_PROPERTY))) {
+            surfaceLayer = DEEP_GROUND_LAYER;
+            avatar.setGroundProbe(new Heightfield(terrain_generator, residency.activeChunks()));
+        }
+        residency.addViewer(() -> avatar.getCenter().x());
+
+        int observerCount = Integer.getInteger(OBSERVERS_PROPERTY, 0);
+        for (int i = 0; i < observerCount; i++) {
+            float speed = i % 2 == 0 ? OBSERVER_SPEED : -OBSERVER_SPEED;
+            WalkingObserver observer = new WalkingObserver(avatar.getCenter().x(), speed);
+            observers.add(observer);
+            residency.addViewer(observer);
+        }
     }
 
-    private void createChunkIn(int minX, int maxX) {
+    private Chunk createChunk(int chunkId) {
+        ChunkGeneratedEvent event = new ChunkGeneratedEvent();
+        event.begin();
+        int windowsDimX = (int) windowDimensions.x();
+        int minX = chunkId * windowsDimX;
+        int maxX = (chunkId + 1) * windowsDimX;
+
         ArrayList<Tree> trees = flora_generator.createInRange(minX, maxX);
-        ArrayList<Block> blocks = terrain_generator.createInRange(minX, maxX);
-        Chunk chunk = new Chunk(blocks, trees);
+        // only the rows near the viewport; deeper bands are generated on demand
+        int bottom = depthTarget();
+        ArrayList<Block> blocks = terrain_generator.createInRange(minX, maxX, Integer.MIN_VALUE, bottom);
+        Chunk chunk = new Chunk(minX, maxX, blocks, trees, bottom);
 
         enableChunk(chunk);
+        markGeneration();
+        if (event.shouldCommit()) {
+            event.chunkId = chunkId;
+            event.blocks = blocks.size();
+            event.trees = trees.size();
+            for (Tree tree : trees) {
+                event.leaves += tree.getLeafCount();
+                event.fruits += tree.getFruitCount();
+            }
+            event.commit();
+        }
+        return chunk;
+    }
 
-        if (minX < 0) {
-            chunks.addFirst(chunk);
-        } else {
-            chunks.addLast(chunk);
+    // blocks, trunks and materialized canopy parts of the active chunks
+    private int countWorldObjects() {
+        int objects = 0;
+        List<Chunk> active = residency.activeChunks();
+        for (int i = 0; i < active.size(); i++) {
+            Chunk chunk = active.get(i);
+            objects += chunk.getBlocks().size() + chunk.getTrees().size();
+            for (Tree tree : chunk.getTrees()) {
+                objects += tree.getTreeLeaves().size() + tree.getFruits().size();
+            }
         }
+        return objects;
     }
 
-    private void createSky() {
-        GameObject sky = Sky.create(windowDimensions);
-        gameObjects().addGameObject(sky, SKY_LAYER);
+    private void markGeneration() {
+        if (allocationReport != null) allocationReport.markGeneration();
     }
 
     private void createDayNightCycle() {
-        GameObject night = Night.create(windowDimensions, DAY_CYCLE_LENGTH);
-        gameObjects().addGameObject(night, Layer.FOREGROUND);
+        // a single sky pass; the night darkens the world through shaded renderables
+        clock = new WorldClock();
+        String timeScale = System.getProperty(TIME_SCALE_PROPERTY);
+        if (timeScale != null) clock.setTimeScale(Float.parseFloat(timeScale));
+        if (resumed != null) clock.tickTo(resumed.worldTime());
+
+        night = new Night(clock, WorldClock.DAY_CYCLE_LENGTH);
+        GameObject sky = Sky.create(windowDimensions, night);
+        gameObjects().addGameObject(sky, SKY_LAYER);
 
-        GameObject sun = Sun.create(windowDimensions, SUN_CYCLE_LENGTH);
+        SunOrbit orbit = new SunOrbit(windowDimensions, clock, SUN_CYCLE_LENGTH);
+        GameObject sun = Sun.create(windowDimensions, orbit, night);
         gameObjects().addGameObject(sun, SUN_LAYER);
 
-        GameObject sunHalo = SunHalo.create(sun);
-        sunHalo.addComponent(deltaTime -> sunHalo.setCenter(sun.getCenter()));
+        GameObject sunHalo = SunHalo.create(sun, orbit, night);
         gameObjects().addGameObject(sunHalo, SUN_HALO_LAYER);
     }
 
-    private void createAvatar(ImageReader imageReader, UserInputListener inputListener) {
-        float avatarX = windowDimensions.x() / FAR_CHUNK_DISTANCE;
+    private void createAvatar(ImageCache images) {
+        float avatarX = windowDimensions.x() * HALF_FACTOR;
         float groundY = (float) (
                 Math.floor(terrain_generator.groundHeightAt(avatarX) / Block.SIZE) * Block.SIZE);
         float avatarY = groundY - AVATAR_SIZE;
 
         Vector2 avatarInitialPos = new Vector2(avatarX, avatarY);
-        avatar = new Avatar(avatarInitialPos, inputListener, imageReader);
+        if (resumed == null) {
+            avatar = new Avatar(avatarInitialPos, input, images, night);
+        } else {
+            avatar = new Avatar(resumed.avatarTopLeft(), input, images, night);
+            resumed.restoreAvatar(avatar);
+        }
         gameObjects().addGameObject(avatar, Layer.DEFAULT);
+        avatarPreviousTick = avatar.getTopLeftCorner();
+        avatarLastTick = avatarPreviousTick;
 
+        // framed as from the start position, so a resumed game looks the same
         Vector2 avatarCenter = avatarInitialPos.add(
                 new Vector2(AVATAR_SIZE, AVATAR_SIZE).mult(HALF_FACTOR));
         Vector2 offset = windowDimensions.mult(HALF_FACTOR).subtract(avatarCenter);
@@ -242,11 +724,15 @@ public class PepseGameManager extends GameManager {
     }
 
     private void createUI() {
-        GameObject energyDisplay = new EnergyDisplay(
-                ENERGY_DISPLAY_POS,
-                ENERGY_DISPLAY_SIZE,
-                avatar::getEnergy
-        );
+        EnergyDisplay energyDisplay = new EnergyDisplay(ENERGY_DISPLAY_POS, ENERGY_DISPLAY_SIZE);
+        avatar.setEnergyListener(energyDisplay);
         gameObjects().addGameObject(energyDisplay, UI_LAYER);
+
+        qualityText = new TextRenderable(
+                String.format(QUALITY_FORMAT, quality.name().toLowerCase()));
+        GameObject qualityDisplay =
+                new GameObject(QUALITY_DISPLAY_POS, QUALITY_DISPLAY_SIZE, qualityText);
+        qualityDisplay.setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
+        gameObjects().addGameObject(qualityDisplay, UI_LAYER);
     }
 }
@@ -0,0 +1,47 @@
+package pepse;
+
+/**
+ * The quality levels the game steps through when frames take too long, best first.
+ * {@link #MEDIUM} is the game as it always ran; {@link #HIGH} streams more of the world
+ * ahead, and the lower levels animate leaves less often, materialize only the inner part
+ * of each canopy and stop generating terrain below the surface bands.
+ */
+public enum QualityLevel {
+    HIGH(1, 1f, 2, true),
+    MEDIUM(1, 1f, 1, true),
+    LOW(2, 0.6f, 1, true),
+    MINIMAL(4, 0.35f, 1, false);
+
+    private final int leafAnimationStride;
+    private final float canopyLeafFraction;
+    private final int chunkInterestRadius;
+    private final boolean deepTerrain;
+
+    QualityLevel(int leafAnimationStride, float canopyLeafFraction, int chunkInterestRadius,
+                 boolean deepTerrain) {
+        this.leafAnimationStride = leafAnimationStride;
+        this.canopyLeafFraction = canopyLeafFraction;
+        this.chunkInterestRadius = chunkInterestRadius;
+        this.deepTerrain = deepTerrain;
+    }
+
+    /** @return the number of frames per step of the leaves' wind animation */
+    public int getLeafAnimationStride() {
+        return leafAnimationStride;
+    }
+
+    /** @return the part of each canopy's leaves that is materialized, innermost first */
+    public float getCanopyLeafFraction() {
+        return canopyLeafFraction;
+    }
+
+    /** @return the number of chunks kept active on either side of each viewer's chunk */
+    public int getChunkInterestRadius() {
+        return chunkInterestRadius;
+    }
+
+    /** @return whether terrain is generated below the surface bands as the view goes down */
+    public boolean hasDeepTerrain() {
+        return deepTerrain;
+    }
+}
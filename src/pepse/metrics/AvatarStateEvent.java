@@ -0,0 +1,45 @@
+package pepse.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded when the avatar's movement state, and therefore its animation, changes.
+ */
+@Name("pepse.AvatarState")
+@Label("Avatar State")
+@Category({"Pepse", "Avatar"})
+@Description("The avatar's movement state changed")
+public class AvatarStateEvent extends Event {
+
+    /** The state left. */
+    @Label("From")
+    public String from;
+
+    /** The state entered. */
+    @Label("To")
+    public String to;
+
+    /** The X-coordinate of the avatar's top-left corner. */
+    @Label("X")
+    public float x;
+
+    /**
+     * Records a state change if this event type is enabled.
+     *
+     * @param from the state left
+     * @param to   the state entered
+     * @param x    the X-coordinate of the avatar's top-left corner
+     */
+    public static void record(Enum<?> from, Enum<?> to, float x) {
+        AvatarStateEvent event = new AvatarStateEvent();
+        if (!event.isEnabled()) return;
+        event.from = from.name();
+        event.to = to.name();
+        event.x = x;
+        event.commit();
+    }
+}
@@ -0,0 +1,38 @@
+package pepse.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded when a chunk is generated; its duration covers generating the chunk's
+ * terrain and trees and adding them to the game.
+ */
+@Name("pepse.ChunkGenerated")
+@Label("Chunk Generated")
+@Category({"Pepse", "World"})
+@Description("Generation of a chunk's terrain and trees")
+public class ChunkGeneratedEvent extends Event {
+
+    /** The id of the chunk: its left edge divided by the chunk width. */
+    @Label("Chunk Id")
+    public int chunkId;
+
+    /** The number of terrain blocks generated. */
+    @Label("Blocks")
+    public int blocks;
+
+    /** The number of trees generated. */
+    @Label("Trees")
+    public int trees;
+
+    /** The number of leaves in the trees' canopies, materialized or not. */
+    @Label("Leaves")
+    public int leaves;
+
+    /** The number of fruits in the trees' canopies, materialized or not. */
+    @Label("Fruits")
+    public int fruits;
+}
@@ -0,0 +1,46 @@
+package pepse.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded when a resident chunk is enabled, disabled or released to the pools.
+ */
+@Name("pepse.ChunkTransition")
+@Label("Chunk Transition")
+@Category({"Pepse", "World"})
+@Description("A resident chunk was enabled, disabled or released")
+public class ChunkTransitionEvent extends Event {
+
+    /** Transition of a chunk whose contents were added to the game, new or disabled before. */
+    public static final String ENABLED = "enabled";
+    /** Transition of an enabled chunk whose contents were removed from the game. */
+    public static final String DISABLED = "disabled";
+    /** Transition of a disabled chunk whose objects were recycled. */
+    public static final String RELEASED = "released";
+
+    /** The id of the chunk: its left edge divided by the chunk width. */
+    @Label("Chunk Id")
+    public int chunkId;
+
+    /** One of {@link #ENABLED}, {@link #DISABLED} or {@link #RELEASED}. */
+    @Label("Transition")
+    public String transition;
+
+    /**
+     * Records a transition if this event type is enabled.
+     *
+     * @param chunkId    the id of the chunk
+     * @param transition one of {@link #ENABLED}, {@link #DISABLED} or {@link #RELEASED}
+     */
+    public static void record(int chunkId, String transition) {
+        ChunkTransitionEvent event = new ChunkTransitionEvent();
+        if (!event.isEnabled()) return;
+        event.chunkId = chunkId;
+        event.transition = transition;
+        event.commit();
+    }
+}
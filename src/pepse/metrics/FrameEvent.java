@@ -0,0 +1,36 @@
+package pepse.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Recorded for every frame; its duration covers the game manager's update, including
+ * simulation ticks, streaming and culling, but not rendering.
+ */
+@Name("pepse.Frame")
+@Label("Frame")
+@Category({"Pepse", "Frame"})
+@Description("One update of the game manager")
+public class FrameEvent extends Event {
+
+    /** The frame's delta time as passed to the update. */
+    @Label("Delta")
+    @Timespan(Timespan.NANOSECONDS)
+    public long delta;
+
+    /** The number of fixed simulation ticks run in the frame. */
+    @Label("Ticks")
+    public int ticks;
+
+    /** The number of chunks enabled at the end of the frame. */
+    @Label("Active Chunks")
+    public int activeChunks;
+
+    /** The quality level at the end of the frame. */
+    @Label("Quality Level")
+    public String quality;
+}
@@ -0,0 +1,45 @@
+package pepse.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded when a fruit is eaten or respawns.
+ */
+@Name("pepse.Fruit")
+@Label("Fruit")
+@Category({"Pepse", "World"})
+@Description("A fruit was eaten or respawned")
+public class FruitEvent extends Event {
+
+    /** The X-coordinate of the fruit's top-left corner. */
+    @Label("X")
+    public float x;
+
+    /** The Y-coordinate of the fruit's top-left corner. */
+    @Label("Y")
+    public float y;
+
+    /** Whether the fruit was eaten; false if it respawned. */
+    @Label("Eaten")
+    public boolean eaten;
+
+    /**
+     * Records a fruit event if this event type is enabled.
+     *
+     * @param x     the X-coordinate of the fruit's top-left corner
+     * @param y     the Y-coordinate of the fruit's top-left corner
+     * @param eaten whether the fruit was eaten; false if it respawned
+     */
+    public static void record(float x, float y, boolean eaten) {
+        FruitEvent event = new FruitEvent();
+        if (!event.isEnabled()) return;
+        event.x = x;
+        event.y = y;
+        event.eaten = eaten;
+        event.commit();
+    }
+}
@@ -0,0 +1,47 @@
+package pepse.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Recorded when the quality governor changes the quality level.
+ */
+@Name("pepse.QualityLevel")
+@Label("Quality Level")
+@Category({"Pepse", "Frame"})
+@Description("The quality level changed because of frame times")
+public class QualityLevelEvent extends Event {
+
+    /** The level left. */
+    @Label("From")
+    public String from;
+
+    /** The level entered. */
+    @Label("To")
+    public String to;
+
+    /** The frame-time percentile the decision was based on. */
+    @Label("Frame Time Percentile")
+    @Timespan(Timespan.NANOSECONDS)
+    public long percentile;
+
+    /**
+     * Records a level change if this event type is enabled.
+     *
+     * @param from       the level left
+     * @param to         the level entered
+     * @param percentile the frame-time percentile, in seconds
+     */
+    public static void record(Enum<?> from, Enum<?> to, float percentile) {
+        QualityLevelEvent event = new QualityLevelEvent();
+        if (!event.isEnabled()) return;
+        event.from = from.name();
+        event.to = to.name();
+        event.percentile = (long) (percentile * 1e9);
+        event.commit();
+    }
+}
@@ -0,0 +1,295 @@
+package pepse.net;
+
+import danogl.GameManager;
+import danogl.GameObject;
+import danogl.collisions.Layer;
+import danogl.gui.ImageReader;
+import danogl.gui.SoundReader;
+import danogl.gui.UserInputListener;
+import danogl.gui.WindowController;
+import danogl.gui.rendering.AnimationRenderable;
+import danogl.gui.rendering.Camera;
+import danogl.util.Vector2;
+import pepse.BiListDeque;
+import pepse.utils.ImageCache;
+import pepse.utils.VarInts;
+import pepse.world.Block;
+import pepse.world.Chunk;
+import pepse.world.Sky;
+import pepse.world.Terrain;
+import pepse.world.WorldClock;
+import pepse.world.avatar.Avatar;
+import pepse.world.avatar.EnergyDisplay;
+import pepse.world.daynight.Night;
+import pepse.world.daynight.Sun;
+import pepse.world.daynight.SunHalo;
+import pepse.world.daynight.SunOrbit;
+import pepse.world.trees.Flora;
+import pepse.world.trees.Fruit;
+import pepse.world.trees.Tree;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+
+/**
+ * Watches a game running in another process on this machine.
+ * <p>
+ * The spectator receives no objects, only the frames of a {@link SpectatorPublisher}:
+ * it regenerates the enabled chunks locally with the same deterministic generators,
+ * seed and density profile, mirrors fruit events and world time, and draws the avatar
+ * as a ghost following the streamed position and pose. Nothing in the spectator's world collides.
+ * <p>
+ * Usage: {@code SpectatorGameManager [port]}, while the game runs with
+ * {@code -Dpepse.spectatorPort=port}.
+ */
+public class SpectatorGameManager extends GameManager {
+
+    private static final int DEFAULT_PORT = 47600;
+    private static final String TITLE = "Pepse spectator";
+
+    private static final int SKY_LAYER = Layer.BACKGROUND;
+    private static final int SUN_LAYER = Layer.BACKGROUND + 1;
+    private static final int SUN_HALO_LAYER = Layer.BACKGROUND + 2;
+    private static final int GROUND_LAYER = Layer.BACKGROUND + 10;
+    private static final int TREE_LAYER = Layer.BACKGROUND + 11;
+    private static final int AVATAR_LAYER = Layer.BACKGROUND + 12;
+    private static final int LEAF_LAYER = Layer.FOREGROUND;
+
+    private static final float SUN_CYCLE_LENGTH = 60f;
+    private static final Vector2 AVATAR_SIZE = new Vector2(50, 50);
+    private static final Vector2 ENERGY_DISPLAY_POS = new Vector2(5, 5);
+    private static final Vector2 ENERGY_DISPLAY_SIZE = new Vector2(20, 20);
+    private static final float HALF_FACTOR = 0.5f;
+
+    private final SpectatorStream stream;
+    private final Vector2 windowDimensions;
+    private final BiListDeque<Chunk> chunks = new BiListDeque<>();
+
+    private WindowController windowController;
+    private WorldClock clock;
+    private Terrain terrain;
+    private Flora flora;
+    private GameObject ghost;
+    private AnimationRenderable[] poses;
+    private EnergyDisplay energyDisplay;
+
+    // the watched state, updated by deltas
+    private int avatarX;
+    private int avatarY;
+    private int pose = -1;
+    private long worldMillis;
+
+    /**
+     * Constructs a spectator for a connected stream.
+     *
+     * @param stream the connection to the watched game
+     */
+    public SpectatorGameManager(SpectatorStream stream) {
+        super(TITLE, new Vector2(stream.chunkWidth(), stream.windowHeight()));
+        this.stream = stream;
+        this.windowDimensions = new Vector2(stream.chunkWidth(), stream.windowHeight());
+    }
+
+    /**
+     * Entry point for the spectator.
+     *
+     * @param args optionally, the port the game streams on
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        new SpectatorGameManager(new SpectatorStream(port)).run();
+    }
+
+    /**
+     * Builds the sky and day/night cycle, the generators for the watched seed,
+     * the ghost avatar and the energy display.
+     *
+     * @param imageReader Image reader utility.
+     * @param soundReader Sound reader utility.
+     * @param inputListener User input listener.
+     * @param windowController Window controller.
+     */
+    @Override
+    public void initializeGame(ImageReader imageReader,
+                               SoundReader soundReader,
+                               UserInputListener inputListener,
+                               WindowController windowController) {
+        super.initializeGame(imageReader, soundReader, inputListener, windowController);
+        this.windowController = windowController;
+
+        clock = new WorldClock();
+        Night night = new Night(clock, WorldClock.DAY_CYCLE_LENGTH);
+        gameObjects().addGameObject(Sky.create(windowDimensions, night), SKY_LAYER);
+        SunOrbit orbit = new SunOrbit(windowDimensions, clock, SUN_CYCLE_LENGTH);
+        GameObject sun = Sun.create(windowDimensions, orbit, night);
+        gameObjects().addGameObject(sun, SUN_LAYER);
+        gameObjects().addGameObject(SunHalo.create(sun, orbit, night), SUN_HALO_LAYER);
+
+        terrain = new Terrain(windowDimensions, stream.seed(), stream.density(), night);
+        flora = new Flora(terrain::groundHeightAt, stream.density(), night, clock);
+
+        ImageCache images = new ImageCache(imageReader);
+        Avatar.State[] states = Avatar.State.values();
+        poses = new AnimationRenderable[states.length];
+        for (int i = 0; i < states.length; i++) {
+            poses[i] = Avatar.createAnimation(states[i], images, night);
+        }
+        ghost = new GameObject(Vector2.ZERO, AVATAR_SIZE, poses[Avatar.State.IDLE.ordinal()]);
+        gameObjects().addGameObject(ghost, AVATAR_LAYER);
+        Vector2 offset = windowDimensions.mult(HALF_FACTOR).subtract(AVATAR_SIZE.mult(HALF_FACTOR));
+        setCamera(new Camera(ghost, offset, windowDimensions, windowDimensions));
+
+        energyDisplay = new EnergyDisplay(ENERGY_DISPLAY_POS, ENERGY_DISPLAY_SIZE);
+        gameObjects().addGameObject(energyDisplay, Layer.UI);
+    }
+
+    /**
+     * Applies every frame received since the last update, then updates the world.
+     * The window closes once the game ends the stream.
+     *
+     * @param delta Time elapsed since last update in seconds.
+     */
+    @Override
+    public void update(float delta) {
+        boolean applied = false;
+        for (byte[] frame = stream.poll(); frame != null; frame = stream.poll()) {
+            applyFrame(frame);
+            applied = true;
+        }
+        if (!applied && stream.isClosed()) {
+            windowController.closeWindow();
+            return;
+        }
+        super.update(delta);
+    }
+
+    private void applyFrame(byte[] frame) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+        try {
+            for (int type = in.readUnsignedByte(); type != SpectatorProtocol.END;
+                 type = in.readUnsignedByte()) {
+                switch (type) {
+                    case SpectatorProtocol.TIME -> {
+                        worldMillis += VarInts.readSigned(in);
+                        clock.tickTo(worldMillis / SpectatorProtocol.MILLIS_PER_SECOND);
+                    }
+                    case SpectatorProtocol.AVATAR -> applyAvatar(in);
+                    case SpectatorProtocol.CHUNK_ENABLED -> enableChunk(VarInts.readSigned(in));
+                    case SpectatorProtocol.CHUNK_DISABLED -> disableChunk(VarInts.readSigned(in));
+                    case SpectatorProtocol.CHUNK_RELEASED -> releaseChunk(VarInts.readSigned(in));
+                    case SpectatorProtocol.FRUIT_EATEN, SpectatorProtocol.FRUIT_RESPAWNED -> {
+                        Fruit fruit = findFruit(VarInts.readSigned(in), VarInts.readSigned(in));
+                        if (fruit == null) break;
+                        if (type == SpectatorProtocol.FRUIT_EATEN) {
+                            fruit.disappear();
+                        } else {
+                            fruit.respawn();
+                        }
+                    }
+                    default -> throw new IllegalStateException("unknown spectator record " + type);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("truncated spectator frame", e);
+        }
+    }
+
+    private void applyAvatar(DataInputStream in) throws IOException {
+        int changed = in.readUnsignedByte();
+        if ((changed & SpectatorProtocol.AVATAR_X) != 0) avatarX += VarInts.readSigned(in);
+        if ((changed & SpectatorProtocol.AVATAR_Y) != 0) avatarY += VarInts.readSigned(in);
+        if ((changed & (SpectatorProtocol.AVATAR_X | SpectatorProtocol.AVATAR_Y)) != 0) {
+            ghost.setTopLeftCorner(new Vector2(avatarX, avatarY));
+        }
+        if ((changed & SpectatorProtocol.AVATAR_ENERGY) != 0) {
+            energyDisplay.onEnergyChanged(in.readUnsignedByte());
+        }
+        if ((changed & SpectatorProtocol.AVATAR_POSE) != 0) {
+            int newPose = in.readUnsignedByte();
+            int state = newPose & SpectatorProtocol.POSE_STATE_MASK;
+            if (pose < 0 || state != (pose & SpectatorProtocol.POSE_STATE_MASK)) {
+                ghost.renderer().setRenderable(poses[state]);
+            }
+            ghost.renderer().setIsFlippedHorizontally(
+                    (newPose & SpectatorProtocol.POSE_FACING_LEFT) != 0);
+            pose = newPose;
+        }
+    }
+
+    private void enableChunk(int chunkId) {
+        Chunk chunk = residentChunk(chunkId);
+        if (chunk == null) {
+            int minX = chunkId * stream.chunkWidth();
+            int maxX = minX + stream.chunkWidth();
+            ArrayList<Tree> trees = flora.createInRange(minX, maxX);
+            ArrayList<Block> blocks = terrain.createInRange(minX, maxX);
+            chunk = new Chunk(minX, maxX, blocks, trees, terrain.getTerrainBottom());
+            chunks.set(chunkId, chunk);
+        }
+        setChunkInGame(chunk, true);
+    }
+
+    private void disableChunk(int chunkId) {
+        Chunk chunk = residentChunk(chunkId);
+        if (chunk != null) setChunkInGame(chunk, false);
+    }
+
+    private void releaseChunk(int chunkId) {
+        Chunk chunk = residentChunk(chunkId);
+        if (chunk == null) return;
+        terrain.releaseBlocks(chunk.getBlocks());
+        flora.releaseTrees(chunk.getTrees());
+        chunks.set(chunkId, null);
+    }
+
+    private void setChunkInGame(Chunk chunk, boolean inGame) {
+        for (Block block : chunk.getBlocks()) {
+            setInGame(block, GROUND_LAYER, inGame);
+        }
+        // the whole canopy of an enabled chunk is materialized; the spectator does not cull
+        for (Tree tree : chunk.getTrees()) {
+            if (inGame) tree.materializeCanopy();
+            setInGame(tree.getTreeBase(), TREE_LAYER, inGame);
+            for (GameObject leaf : tree.getTreeLeaves()) {
+                setInGame(leaf, LEAF_LAYER, inGame);
+            }
+            for (Fruit fruit : tree.getFruits()) {
+                setInGame(fruit, TREE_LAYER, inGame);
+            }
+            if (!inGame) tree.dematerializeCanopy();
+        }
+    }
+
+    private void setInGame(GameObject object, int layer, boolean inGame) {
+        if (inGame) {
+            gameObjects().addGameObject(object, layer);
+        } else {
+            gameObjects().removeGameObject(object, layer);
+        }
+    }
+
+    // a canopy may overhang its tree's chunk, so the neighbors are searched too
+    private Fruit findFruit(int x, int y) {
+        int chunkId = Math.floorDiv(x, stream.chunkWidth());
+        for (int id = chunkId - 1; id <= chunkId + 1; id++) {
+            Chunk chunk = residentChunk(id);
+            if (chunk == null) continue;
+            for (Tree tree : chunk.getTrees()) {
+                for (Fruit fruit : tree.getFruits()) {
+                    Vector2 topLeft = fruit.getTopLeftCorner();
+                    if (Math.round(topLeft.x()) == x && Math.round(topLeft.y()) == y) {
+                        return fruit;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private Chunk residentChunk(int chunkId) {
+        return chunks.isValidIndex(chunkId) ? chunks.get(chunkId) : null;
+    }
+}
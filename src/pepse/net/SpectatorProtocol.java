@@ -0,0 +1,48 @@
+package pepse.net;
+
+/**
+ * The wire format shared by {@link SpectatorPublisher} and {@link SpectatorStream}.
+ * <p>
+ * After a header (magic, version, world seed, window width and height, and the density
+ * profile as written by {@link pepse.world.DensityProfile#write}) the publisher
+ * sends one frame per game frame: a variable-length byte count followed by records,
+ * each a type byte and its fields, ending with {@link #END}. Records carry changes only:
+ * <ul>
+ *     <li>{@link #TIME}: world time since the last frame, in signed milliseconds</li>
+ *     <li>{@link #AVATAR}: a mask of changed fields, then signed pixel deltas of the
+ *     position, the energy and the pose (movement state and facing)</li>
+ *     <li>{@link #CHUNK_ENABLED}, {@link #CHUNK_DISABLED}, {@link #CHUNK_RELEASED}:
+ *     a signed chunk id; the contents are regenerated from the seed</li>
+ *     <li>{@link #FRUIT_EATEN}, {@link #FRUIT_RESPAWNED}: the fruit's signed top-left
+ *     pixel coordinates</li>
+ * </ul>
+ * The first frame after a spectator connects enables every active chunk and eats every
+ * eaten fruit in them, and sends all avatar fields, so later frames can be deltas.
+ * Integers use {@link pepse.utils.VarInts}.
+ */
+final class SpectatorProtocol {
+
+    static final int MAGIC = 0x50535043;   // "PSPC"
+    static final int VERSION = 2;
+
+    static final int END = 0;
+    static final int TIME = 1;
+    static final int AVATAR = 2;
+    static final int CHUNK_ENABLED = 3;
+    static final int CHUNK_DISABLED = 4;
+    static final int CHUNK_RELEASED = 5;
+    static final int FRUIT_EATEN = 6;
+    static final int FRUIT_RESPAWNED = 7;
+
+    static final int AVATAR_X = 1;
+    static final int AVATAR_Y = 1 << 1;
+    static final int AVATAR_ENERGY = 1 << 2;
+    static final int AVATAR_POSE = 1 << 3;
+
+    static final int POSE_FACING_LEFT = 0x80;
+    static final int POSE_STATE_MASK = 0x7F;
+
+    static final double MILLIS_PER_SECOND = 1000.0;
+
+    private SpectatorProtocol() {}
+}
@@ -0,0 +1,299 @@
+package pepse.net;
+
+import danogl.util.Vector2;
+import pepse.utils.VarInts;
+import pepse.world.Chunk;
+import pepse.world.DensityProfile;
+import pepse.world.avatar.Avatar;
+import pepse.world.trees.Fruit;
+import pepse.world.trees.FruitListener;
+import pepse.world.trees.Tree;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams the state of a running game to a spectator process over a loopback socket.
+ * <p>
+ * Only what a spectator cannot derive is sent: the avatar's state, which chunks are
+ * enabled (by id - the spectator regenerates their contents from the same seed), fruit
+ * events and world time, all as deltas (see {@link SpectatorProtocol}). Events are
+ * collected on the game thread while the frame runs and sent by {@link #publishFrame}.
+ * <p>
+ * One spectator is served at a time; a new connection replaces the previous one. Frames
+ * are handed to a sender thread so a slow spectator never blocks the game; if it falls
+ * too far behind it is disconnected, since later deltas would be meaningless.
+ */
+public class SpectatorPublisher implements FruitListener {
+
+    private static final int MAX_QUEUED_FRAMES = 120;
+
+    private final ServerSocket server;
+    private final int seed;
+    private final DensityProfile density;
+    private final int chunkWidth;
+    private final int windowHeight;
+
+    // handed over from the accept thread; a newer spectator replaces one not yet picked up
+    private final AtomicReference<Socket> accepted = new AtomicReference<>();
+    private Connection connection;
+
+    private final ByteArrayOutputStream frameBytes = new ByteArrayOutputStream();
+    private final DataOutputStream frame = new DataOutputStream(frameBytes);
+
+    // last avatar state and time sent, the base of the next deltas
+    private int sentX;
+    private int sentY;
+    private int sentEnergy;
+    private int sentPose;
+    private long sentMillis;
+
+    /**
+     * Starts listening for a spectator on the loopback interface.
+     *
+     * @param port             the local port to listen on
+     * @param seed             the world seed, sent to the spectator
+     * @param density          the world's density profile, sent to the spectator
+     * @param windowDimensions the game's window dimensions; the width is the chunk width
+     */
+    public SpectatorPublisher(int port, int seed, DensityProfile density,
+                              Vector2 windowDimensions) {
+        this.seed = seed;
+        this.density = density;
+        this.chunkWidth = (int) windowDimensions.x();
+        this.windowHeight = (int) windowDimensions.y();
+        try {
+            this.server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot listen for spectators on port " + port, e);
+        }
+        Thread acceptor = new Thread(this::acceptSpectators, "spectator-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /** @param chunk a chunk that was generated or enabled */
+    public void chunkEnabled(Chunk chunk) {
+        chunkEvent(SpectatorProtocol.CHUNK_ENABLED, chunk);
+    }
+
+    /** @param chunk a chunk that was disabled */
+    public void chunkDisabled(Chunk chunk) {
+        chunkEvent(SpectatorProtocol.CHUNK_DISABLED, chunk);
+    }
+
+    /** @param chunk a chunk whose objects were recycled */
+    public void chunkReleased(Chunk chunk) {
+        chunkEvent(SpectatorProtocol.CHUNK_RELEASED, chunk);
+    }
+
+    @Override
+    public void onFruitEaten(Fruit fruit) {
+        Vector2 topLeft = fruit.getTopLeftCorner();
+        fruitEvent(SpectatorProtocol.FRUIT_EATEN, topLeft.x(), topLeft.y());
+    }
+
+    @Override
+    public void onFruitRespawned(Fruit fruit) {
+        Vector2 topLeft = fruit.getTopLeftCorner();
+        fruitEvent(SpectatorProtocol.FRUIT_RESPAWNED, topLeft.x(), topLeft.y());
+    }
+
+    /**
+     * Ends the current frame: appends the time and avatar changes to the collected events
+     * and queues the frame for the spectator. A newly connected spectator first receives
+     * the full state of the active chunks.
+     *
+     * @param avatar       the avatar
+     * @param worldTime    the world clock's time
+     * @param activeChunks the chunks currently enabled
+     */
+    public void publishFrame(Avatar avatar, double worldTime, List<Chunk> activeChunks) {
+        Socket socket = accepted.getAndSet(null);
+        if (socket != null) {
+            startConnection(socket, activeChunks, worldTime);
+        }
+        if (connection == null) return;
+
+        try {
+            long millis = Math.round(worldTime * SpectatorProtocol.MILLIS_PER_SECOND);
+            frame.writeByte(SpectatorProtocol.TIME);
+            VarInts.writeSigned(frame, (int) (millis - sentMillis));
+            sentMillis = millis;
+            writeAvatar(avatar);
+            frame.writeByte(SpectatorProtocol.END);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot encode spectator frame", e);
+        }
+
+        byte[] bytes = frameBytes.toByteArray();
+        frameBytes.reset();
+        if (!connection.send(bytes)) {
+            connection.close();
+            connection = null;
+        }
+    }
+
+    /** Stops listening and disconnects the spectator. Safe to call twice. */
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            // nothing left to release
+        }
+        closeQuietly(accepted.getAndSet(null));
+        if (connection != null) connection.close();
+    }
+
+    private void startConnection(Socket socket, List<Chunk> activeChunks, double worldTime) {
+        if (connection != null) connection.close();
+        connection = new Connection(socket, seed, density, chunkWidth, windowHeight);
+
+        frameBytes.reset();
+        sentX = 0;
+        sentY = 0;
+        sentEnergy = -1;
+        sentPose = -1;
+        sentMillis = 0;
+        for (int i = 0; i < activeChunks.size(); i++) {
+            Chunk chunk = activeChunks.get(i);
+            chunkEnabled(chunk);
+            // includes fruits of canopies that are not materialized
+            for (Tree tree : chunk.getTrees()) {
+                for (int fruit = 0; fruit < tree.getFruitCount(); fruit++) {
+                    if (tree.getFruitRespawnTime(fruit) > worldTime) {
+                        fruitEvent(SpectatorProtocol.FRUIT_EATEN,
+                                tree.getFruitLeft(fruit), tree.getFruitTop(fruit));
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeAvatar(Avatar avatar) throws IOException {
+        Vector2 topLeft = avatar.getTopLeftCorner();
+        int x = Math.round(topLeft.x());
+        int y = Math.round(topLeft.y());
+        int energy = (int) avatar.getEnergy();
+        int pose = avatar.getState().ordinal()
+                | (avatar.isFacingLeft() ? SpectatorProtocol.POSE_FACING_LEFT : 0);
+
+        int changed = (x != sentX ? SpectatorProtocol.AVATAR_X : 0)
+                | (y != sentY ? SpectatorProtocol.AVATAR_Y : 0)
+                | (energy != sentEnergy ? SpectatorProtocol.AVATAR_ENERGY : 0)
+                | (pose != sentPose ? SpectatorProtocol.AVATAR_POSE : 0);
+        if (changed == 0) return;
+
+        frame.writeByte(SpectatorProtocol.AVATAR);
+        frame.writeByte(changed);
+        if ((changed & SpectatorProtocol.AVATAR_X) != 0) VarInts.writeSigned(frame, x - sentX);
+        if ((changed & SpectatorProtocol.AVATAR_Y) != 0) VarInts.writeSigned(frame, y - sentY);
+        if ((changed & SpectatorProtocol.AVATAR_ENERGY) != 0) frame.writeByte(energy);
+        if ((changed & SpectatorProtocol.AVATAR_POSE) != 0) frame.writeByte(pose);
+        sentX = x;
+        sentY = y;
+        sentEnergy = energy;
+        sentPose = pose;
+    }
+
+    private void chunkEvent(int type, Chunk chunk) {
+        if (connection == null) return;
+        try {
+            frame.writeByte(type);
+            VarInts.writeSigned(frame, Math.floorDiv(chunk.getMinX(), chunkWidth));
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot encode spectator frame", e);
+        }
+    }
+
+    private void fruitEvent(int type, float left, float top) {
+        if (connection == null) return;
+        try {
+            frame.writeByte(type);
+            VarInts.writeSigned(frame, Math.round(left));
+            VarInts.writeSigned(frame, Math.round(top));
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot encode spectator frame", e);
+        }
+    }
+
+    private void acceptSpectators() {
+        while (!server.isClosed()) {
+            try {
+                closeQuietly(accepted.getAndSet(server.accept()));
+            } catch (IOException e) {
+                return; // closed
+            }
+        }
+        // accepted while closing, after close() emptied the hand-over
+        closeQuietly(accepted.getAndSet(null));
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if (socket == null) return;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+    /**
+     * A connected spectator: writes the header, then queued frames, on its own thread.
+     */
+    private static final class Connection {
+
+        private final Socket socket;
+        private final BlockingQueue<byte[]> frames = new ArrayBlockingQueue<>(MAX_QUEUED_FRAMES);
+        private volatile boolean closed;
+
+        private Connection(Socket socket, int seed, DensityProfile density, int chunkWidth,
+                           int windowHeight) {
+            this.socket = socket;
+            Thread sender = new Thread(
+                    () -> sendFrames(seed, density, chunkWidth, windowHeight), "spectator-send");
+            sender.setDaemon(true);
+            sender.start();
+        }
+
+        private boolean send(byte[] frame) {
+            return !closed && frames.offer(frame);
+        }
+
+        private void close() {
+            closed = true;
+            closeQuietly(socket);
+        }
+
+        private void sendFrames(int seed, DensityProfile density, int chunkWidth,
+                                int windowHeight) {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()))) {
+                out.writeInt(SpectatorProtocol.MAGIC);
+                out.writeByte(SpectatorProtocol.VERSION);
+                out.writeInt(seed);
+                VarInts.writeUnsigned(out, chunkWidth);
+                VarInts.writeUnsigned(out, windowHeight);
+                density.write(out);
+                while (!closed) {
+                    byte[] frame = frames.take();
+                    VarInts.writeUnsigned(out, frame.length);
+                    out.write(frame);
+                    if (frames.isEmpty()) out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                closed = true; // the spectator went away
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package pepse.net;
+
+import pepse.utils.VarInts;
+import pepse.world.DensityProfile;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The spectator's end of a {@link SpectatorPublisher} connection.
+ * <p>
+ * The header is read on connection; frames are then read on a background thread and
+ * queued until the game thread polls them, so reading never stalls rendering.
+ */
+public class SpectatorStream {
+
+    private final DataInputStream in;
+    private final int seed;
+    private final int chunkWidth;
+    private final int windowHeight;
+    private final DensityProfile density;
+    private final ConcurrentLinkedQueue<byte[]> frames = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    /**
+     * Connects to a publisher on this machine and reads the stream header.
+     *
+     * @param port the port the publisher listens on
+     */
+    public SpectatorStream(int port) {
+        try {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            if (in.readInt() != SpectatorProtocol.MAGIC) {
+                throw new IllegalStateException("not a spectator stream on port " + port);
+            }
+            int version = in.readUnsignedByte();
+            if (version != SpectatorProtocol.VERSION) {
+                throw new IllegalStateException("unsupported spectator stream version " + version);
+            }
+            seed = in.readInt();
+            chunkWidth = VarInts.readUnsigned(in);
+            windowHeight = VarInts.readUnsigned(in);
+            density = DensityProfile.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot connect to the game on port " + port, e);
+        }
+
+        Thread reader = new Thread(this::readFrames, "spectator-receive");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /** @return the seed the watched world was generated from */
+    public int seed() {
+        return seed;
+    }
+
+    /** @return the watched game's chunk width, which is also its window width */
+    public int chunkWidth() {
+        return chunkWidth;
+    }
+
+    /** @return the watched game's window height */
+    public int windowHeight() {
+        return windowHeight;
+    }
+
+    /** @return the density profile the watched world was generated with */
+    public DensityProfile density() {
+        return density;
+    }
+
+    /** @return the oldest frame not yet polled, or null if none has arrived */
+    public byte[] poll() {
+        return frames.poll();
+    }
+
+    /** @return whether the game closed the stream; queued frames may remain */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void readFrames() {
+        try (DataInputStream input = in) {
+            while (true) {
+                byte[] frame = new byte[VarInts.readUnsigned(input)];
+                input.readFully(frame);
+                frames.add(frame);
+            }
+        } catch (IOException e) {
+            closed = true; // end of stream
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package pepse.replay;
+
+import pepse.utils.VarInts;
+import pepse.world.avatar.KeyStateSource;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Live input that also writes every tick's key state to a recording file,
+ * to be fed back later by {@link InputReplayer}.
+ */
+public class InputRecorder implements TickInput {
+
+    private final KeyStateSource keys;
+    private final DataOutputStream out;
+    private int bits = -1;
+    private int runLength;
+    private boolean closed;
+
+    /**
+     * Creates the recording file and writes its header.
+     *
+     * @param keys     the live keyboard
+     * @param path     the file to record into
+     * @param tickRate simulation ticks per second
+     * @param seed     the world seed the session runs with
+     */
+    public InputRecorder(KeyStateSource keys, String path, int tickRate, int seed) {
+        this.keys = keys;
+        try {
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+            out.writeInt(InputRecording.MAGIC);
+            out.writeByte(InputRecording.VERSION);
+            out.writeShort(tickRate);
+            out.writeInt(seed);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot create input recording " + path, e);
+        }
+    }
+
+    // synchronized with close(), which may run from a shutdown hook mid-tick
+    @Override
+    public synchronized void nextTick() {
+        int sampled = TickInput.sample(keys);
+        if (closed) {
+            bits = sampled;
+            return;
+        }
+        if (sampled != bits && runLength > 0) {
+            writeRun();
+        }
+        bits = sampled;
+        runLength++;
+    }
+
+    @Override
+    public boolean isKeyPressed(int keyCode) {
+        return TickInput.isPressed(bits, keyCode);
+    }
+
+    /** Writes the last run and the end marker, and closes the file. Safe to call twice. */
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            if (runLength > 0) writeRun();
+            out.writeByte(0);
+            VarInts.writeUnsigned(out, 0);
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot finish input recording", e);
+        }
+    }
+
+    private void writeRun() {
+        try {
+            out.writeByte(bits);
+            VarInts.writeUnsigned(out, runLength);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write input recording", e);
+        }
+        runLength = 0;
+    }
+}
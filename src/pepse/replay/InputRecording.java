@@ -0,0 +1,17 @@
+package pepse.replay;
+
+/**
+ * The binary format shared by {@link InputRecorder} and {@link InputReplayer}.
+ * <p>
+ * A header (magic, version, tick rate, world seed) is followed by run-length encoded
+ * ticks: each run is the packed key state byte and a variable-length count of
+ * consecutive ticks with that state (see {@link pepse.utils.VarInts}).
+ * A run with count 0 ends the recording.
+ */
+final class InputRecording {
+
+    static final int MAGIC = 0x50525043;   // "PRPC"
+    static final int VERSION = 1;
+
+    private InputRecording() {}
+}
@@ -0,0 +1,106 @@
+package pepse.replay;
+
+import pepse.utils.VarInts;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Feeds back the key states of a file written by {@link InputRecorder}, one tick at a time.
+ * <p>
+ * The whole recording is read up front, so replaying never touches the disk.
+ * After the last recorded tick no keys are pressed and {@link #isFinished()} is true.
+ */
+public class InputReplayer implements TickInput {
+
+    private final int tickRate;
+    private final int seed;
+    private final byte[] runStates;
+    private final int[] runLengths;
+    private final int runCount;
+    private int run;
+    private int ticksLeftInRun;
+    private int bits;
+    private boolean finished;
+
+    /**
+     * Reads a recording.
+     *
+     * @param path the recording file
+     */
+    public InputReplayer(String path) {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(path)))) {
+            if (in.readInt() != InputRecording.MAGIC) {
+                throw new IllegalArgumentException(path + " is not an input recording");
+            }
+            int version = in.readUnsignedByte();
+            if (version != InputRecording.VERSION) {
+                throw new IllegalArgumentException("unsupported recording version " + version);
+            }
+            tickRate = in.readUnsignedShort();
+            seed = in.readInt();
+
+            byte[] states = new byte[16];
+            int[] lengths = new int[16];
+            int count = 0;
+            while (true) {
+                byte state = in.readByte();
+                int length = VarInts.readUnsigned(in);
+                if (length == 0) break;
+                if (count == states.length) {
+                    states = Arrays.copyOf(states, count * 2);
+                    lengths = Arrays.copyOf(lengths, count * 2);
+                }
+                states[count] = state;
+                lengths[count] = length;
+                count++;
+            }
+            this.runStates = states;
+            this.runLengths = lengths;
+            this.runCount = count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read input recording " + path, e);
+        }
+        this.run = -1;
+    }
+
+    /** @return simulation ticks per second the recording was made at */
+    public int tickRate() {
+        return tickRate;
+    }
+
+    /** @return the world seed the recording was made with */
+    public int seed() {
+        return seed;
+    }
+
+    /** @return whether every recorded tick has been replayed */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void nextTick() {
+        while (ticksLeftInRun == 0) {
+            run++;
+            if (run >= runCount) {
+                bits = 0;
+                finished = true;
+                return;
+            }
+            ticksLeftInRun = runLengths[run];
+            bits = runStates[run];
+        }
+        ticksLeftInRun--;
+    }
+
+    @Override
+    public boolean isKeyPressed(int keyCode) {
+        return TickInput.isPressed(bits, keyCode);
+    }
+}
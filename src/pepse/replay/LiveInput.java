@@ -0,0 +1,31 @@
+package pepse.replay;
+
+import pepse.world.avatar.KeyStateSource;
+
+/**
+ * Live keyboard input, snapshotted once per simulation tick.
+ */
+public class LiveInput implements TickInput {
+
+    private final KeyStateSource keys;
+    private int bits;
+
+    /**
+     * Constructs a new {@code LiveInput}.
+     *
+     * @param keys the live keyboard, e.g. {@code UserInputListener::isKeyPressed}
+     */
+    public LiveInput(KeyStateSource keys) {
+        this.keys = keys;
+    }
+
+    @Override
+    public void nextTick() {
+        bits = TickInput.sample(keys);
+    }
+
+    @Override
+    public boolean isKeyPressed(int keyCode) {
+        return TickInput.isPressed(bits, keyCode);
+    }
+}
@@ -0,0 +1,49 @@
+package pepse.replay;
+
+import pepse.world.avatar.KeyStateSource;
+
+import java.awt.event.KeyEvent;
+
+/**
+ * Key state that changes only between simulation ticks.
+ * <p>
+ * The game manager calls {@link #nextTick()} once before every simulation tick; all
+ * queries during the tick see the same snapshot. Only the keys the avatar polls are
+ * tracked, packed into the bits of a single byte.
+ */
+public interface TickInput extends KeyStateSource {
+
+    /** The keys tracked per tick, in bit order */
+    int[] TRACKED_KEYS = {KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT, KeyEvent.VK_SPACE};
+
+    /** Advances to the key state of the next simulation tick. */
+    void nextTick();
+
+    /**
+     * Packs the state of the tracked keys into bits.
+     *
+     * @param keys the source to sample
+     * @return bit i is set if {@code TRACKED_KEYS[i]} is pressed
+     */
+    static int sample(KeyStateSource keys) {
+        int bits = 0;
+        for (int i = 0; i < TRACKED_KEYS.length; i++) {
+            if (keys.isKeyPressed(TRACKED_KEYS[i])) bits |= 1 << i;
+        }
+        return bits;
+    }
+
+    /**
+     * Answers a key query from packed bits.
+     *
+     * @param bits    packed key state, as returned by {@link #sample}
+     * @param keyCode the queried key
+     * @return whether the key is pressed; untracked keys are never pressed
+     */
+    static boolean isPressed(int bits, int keyCode) {
+        for (int i = 0; i < TRACKED_KEYS.length; i++) {
+            if (TRACKED_KEYS[i] == keyCode) return (bits & (1 << i)) != 0;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+package pepse.replay;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes one line per frame with the frame's duration, the number of simulation ticks
+ * it ran, the time spent in the game manager's update and the number of world objects
+ * in the game, as CSV.
+ * <p>
+ * Combined with {@link InputReplayer}, two builds can replay the same session and
+ * their frame-time distributions can be compared line by line; with different density
+ * profiles, frame time can be plotted against the number of objects.
+ */
+public class TickTimingLog {
+
+    private static final String HEADER = "frame,ticks,frame_ms,update_ms,objects";
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double MILLIS_PER_SECOND = 1e3;
+
+    private final BufferedWriter out;
+    private long frame;
+    private boolean closed;
+
+    /**
+     * Creates the log file and writes its header.
+     *
+     * @param path the file to write
+     */
+    public TickTimingLog(String path) {
+        try {
+            out = new BufferedWriter(new FileWriter(path));
+            out.write(HEADER);
+            out.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot create timing log " + path, e);
+        }
+    }
+
+    /**
+     * Appends a frame, unless the log is closed. Synchronized with {@link #close()}, which
+     * may run from a shutdown hook while the game thread is still logging.
+     *
+     * @param deltaTime   the frame's duration, in seconds
+     * @param ticks       simulation ticks run in the frame
+     * @param updateNanos time spent in the update, in nanoseconds
+     * @param objects     world objects (blocks, trunks, leaves, fruits) in the game
+     */
+    public synchronized void logFrame(float deltaTime, int ticks, long updateNanos, int objects) {
+        if (closed) return;
+        try {
+            out.write(Long.toString(frame++));
+            out.write(',');
+            out.write(Integer.toString(ticks));
+            out.write(',');
+            out.write(Double.toString(deltaTime * MILLIS_PER_SECOND));
+            out.write(',');
+            out.write(Double.toString(updateNanos / NANOS_PER_MILLI));
+            out.write(',');
+            out.write(Integer.toString(objects));
+            out.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write timing log", e);
+        }
+    }
+
+    /** Flushes and closes the log. Safe to call twice. */
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot close timing log", e);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package pepse.save;
+
+import danogl.util.Vector2;
+import pepse.utils.VarInts;
+import pepse.world.Chunk;
+import pepse.world.ChunkResidency;
+import pepse.world.DensityProfile;
+import pepse.world.avatar.Avatar;
+import pepse.world.trees.Flora;
+import pepse.world.trees.FruitState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A saved game: what cannot be regenerated from the world seed.
+ * <p>
+ * The world is deterministic, so no game object is saved. A snapshot holds the seed,
+ * density profile and window dimensions the world was generated with, the world time, the
+ * avatar's position, velocity, energy and state, the ids of the resident chunks (enabled,
+ * and disabled but retained), and the eaten fruits with their respawn times of every chunk
+ * that has any: resident, or released with its {@link FruitState} kept by {@link Flora}.
+ * Fruits are identified by chunk id and their index in the chunk's state. Resuming hands
+ * the states to Flora as if their chunks had been released, so each chunk gets its eaten
+ * fruits back when it is regenerated, and then makes the saved chunks resident again.
+ * <p>
+ * The file is a header (magic, version) followed by the fields above; chunk ids are
+ * delta-encoded and indices written as variable-length integers (see {@link VarInts}).
+ * It is written to a temporary file that then replaces the save, so a failed write
+ * leaves the previous save intact.
+ */
+public final class GameSnapshot {
+
+    private static final int MAGIC = 0x50534156; // "PSAV"
+    private static final int VERSION = 3;
+
+    private final int seed;
+    private final DensityProfile density;
+    private final int windowWidth;
+    private final int windowHeight;
+    private final double worldTime;
+    private final float avatarX;
+    private final float avatarY;
+    private final float velocityX;
+    private final float velocityY;
+    private final int energy;
+    private final Avatar.State state;
+    private final boolean facingLeft;
+    private final int[] activeIds;      // ascending
+    private final int[] retainedIds;    // oldest first
+    private final ChunkFruits[] chunks;
+
+    // the eaten fruits of one chunk, in index order
+    private static final class ChunkFruits {
+        private final int chunkId;
+        private final int fruitCount;
+        private final int[] fruits;
+        private final double[] respawnTimes;
+
+        private ChunkFruits(int chunkId, int fruitCount, int[] fruits, double[] respawnTimes) {
+            this.chunkId = chunkId;
+            this.fruitCount = fruitCount;
+            this.fruits = fruits;
+            this.respawnTimes = respawnTimes;
+        }
+    }
+
+    private GameSnapshot(int seed, DensityProfile density, int windowWidth, int windowHeight,
+                         double worldTime, float avatarX, float avatarY, float velocityX,
+                         float velocityY, int energy, Avatar.State state, boolean facingLeft,
+                         int[] activeIds, int[] retainedIds, ChunkFruits[] chunks) {
+        this.seed = seed;
+        this.density = density;
+        this.windowWidth = windowWidth;
+        this.windowHeight = windowHeight;
+        this.worldTime = worldTime;
+        this.avatarX = avatarX;
+        this.avatarY = avatarY;
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.energy = energy;
+        this.state = state;
+        this.facingLeft = facingLeft;
+        this.activeIds = activeIds;
+        this.retainedIds = retainedIds;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Captures the state of a running game.
+     *
+     * @param seed             the world seed
+     * @param density          the world's density profile
+     * @param windowDimensions the window dimensions; the width is the chunk width
+     * @param worldTime        the world clock's time
+     * @param avatar           the avatar
+     * @param activeChunks     the chunks currently enabled
+     * @param retainedChunks   the chunks disabled but not released, oldest first
+     * @param releasedFruits   the fruit states Flora keeps for released chunks
+     * @return the snapshot
+     */
+    public static GameSnapshot capture(int seed, DensityProfile density, Vector2 windowDimensions,
+                                       double worldTime, Avatar avatar, List<Chunk> activeChunks,
+                                       List<Chunk> retainedChunks,
+                                       Collection<FruitState> releasedFruits) {
+        int windowWidth = (int) windowDimensions.x();
+        int[] activeIds = chunkIds(activeChunks, windowWidth);
+        Arrays.sort(activeIds);
+        int[] retainedIds = chunkIds(retainedChunks, windowWidth);
+
+        ArrayList<FruitState> fruitStates = new ArrayList<>(releasedFruits);
+        addFruitStates(activeChunks, fruitStates);
+        addFruitStates(retainedChunks, fruitStates);
+        ArrayList<ChunkFruits> eaten = new ArrayList<>();
+        for (FruitState fruits : fruitStates) {
+            if (fruits.hasEaten(worldTime)) {
+                eaten.add(captureFruits(fruits, windowWidth, worldTime));
+            }
+        }
+        // ascending ids keep the deltas small
+        eaten.sort((a, b) -> Integer.compare(a.chunkId, b.chunkId));
+        ChunkFruits[] chunks = eaten.toArray(new ChunkFruits[0]);
+
+        Vector2 topLeft = avatar.getTopLeftCorner();
+        Vector2 velocity = avatar.getVelocity();
+        return new GameSnapshot(seed, density, windowWidth, (int) windowDimensions.y(),
+                worldTime, topLeft.x(), topLeft.y(), velocity.x(), velocity.y(),
+                (int) avatar.getEnergy(), avatar.getState(), avatar.isFacingLeft(),
+                activeIds, retainedIds, chunks);
+    }
+
+    private static int[] chunkIds(List<Chunk> chunks, int chunkWidth) {
+        int[] ids = new int[chunks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = Math.floorDiv(chunks.get(i).getMinX(), chunkWidth);
+        }
+        return ids;
+    }
+
+    private static void addFruitStates(List<Chunk> chunks, List<FruitState> states) {
+        for (int i = 0; i < chunks.size(); i++) {
+            FruitState fruits = chunks.get(i).getFruitState();
+            if (fruits != null) states.add(fruits);
+        }
+    }
+
+    private static ChunkFruits captureFruits(FruitState state, int chunkWidth, double worldTime) {
+        int count = state.size() - state.countAvailable(worldTime);
+        int[] fruits = new int[count];
+        double[] respawnTimes = new double[count];
+        int next = 0;
+        for (int fruit = 0; fruit < state.size(); fruit++) {
+            if (!state.isEaten(fruit, worldTime)) continue;
+            fruits[next] = fruit;
+            respawnTimes[next] = state.getRespawnTime(fruit);
+            next++;
+        }
+        int chunkId = Math.floorDiv(state.getRangeMinX(), chunkWidth);
+        return new ChunkFruits(chunkId, state.size(), fruits, respawnTimes);
+    }
+
+    /**
+     * Writes the snapshot to a file, replacing it only once the snapshot is complete.
+     *
+     * @param path the file to write
+     */
+    public void write(String path) {
+        Path target = Paths.get(path).toAbsolutePath();
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(
+                    target.getParent(), target.getFileName().toString(), null);
+            writeTo(temporary);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(temporary);
+            throw new UncheckedIOException("cannot write saved game " + path, e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // a stray temporary file; the save itself is untouched
+        }
+    }
+
+    private void writeTo(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(seed);
+            density.write(out);
+            VarInts.writeUnsigned(out, windowWidth);
+            VarInts.writeUnsigned(out, windowHeight);
+            out.writeDouble(worldTime);
+            out.writeFloat(avatarX);
+            out.writeFloat(avatarY);
+            out.writeFloat(velocityX);
+            out.writeFloat(velocityY);
+            out.writeByte(energy);
+            out.writeByte(state.ordinal());
+            out.writeBoolean(facingLeft);
+            writeIds(out, activeIds);
+            writeIds(out, retainedIds);
+
+            VarInts.writeUnsigned(out, chunks.length);
+            int previousId = 0;
+            for (ChunkFruits chunk : chunks) {
+                VarInts.writeSigned(out, chunk.chunkId - previousId);
+                previousId = chunk.chunkId;
+                VarInts.writeUnsigned(out, chunk.fruitCount);
+                VarInts.writeUnsigned(out, chunk.fruits.length);
+                int previousFruit = 0;
+                for (int i = 0; i < chunk.fruits.length; i++) {
+                    VarInts.writeUnsigned(out, chunk.fruits[i] - previousFruit);
+                    previousFruit = chunk.fruits[i];
+                    // seconds left; a float is precise enough for timers this short
+                    out.writeFloat((float) (chunk.respawnTimes[i] - worldTime));
+                }
+            }
+        }
+    }
+
+    private static void writeIds(DataOutputStream out, int[] ids) throws IOException {
+        VarInts.writeUnsigned(out, ids.length);
+        int previousId = 0;
+        for (int id : ids) {
+            VarInts.writeSigned(out, id - previousId);
+            previousId = id;
+        }
+    }
+
+    private static int[] readIds(DataInputStream in) throws IOException {
+        int[] ids = new int[VarInts.readUnsigned(in)];
+        int id = 0;
+        for (int i = 0; i < ids.length; i++) {
+            id += VarInts.readSigned(in);
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write}.
+     *
+     * @param path the file to read
+     * @return the snapshot
+     */
+    public static GameSnapshot read(String path) {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException(path + " is not a saved game");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("unsupported saved game version " + version);
+            }
+            int seed = in.readInt();
+            DensityProfile density = DensityProfile.read(in);
+            int windowWidth = VarInts.readUnsigned(in);
+            int windowHeight = VarInts.readUnsigned(in);
+            double worldTime = in.readDouble();
+            float avatarX = in.readFloat();
+            float avatarY = in.readFloat();
+            float velocityX = in.readFloat();
+            float velocityY = in.readFloat();
+            int energy = in.readUnsignedByte();
+            Avatar.State state = Avatar.State.values()[in.readUnsignedByte()];
+            boolean facingLeft = in.readBoolean();
+            int[] activeIds = readIds(in);
+            int[] retainedIds = readIds(in);
+
+            ChunkFruits[] chunks = new ChunkFruits[VarInts.readUnsigned(in)];
+            int chunkId = 0;
+            for (int c = 0; c < chunks.length; c++) {
+                chunkId += VarInts.readSigned(in);
+                int fruitCount = VarInts.readUnsigned(in);
+                int count = VarInts.readUnsigned(in);
+                int[] fruits = new int[count];
+                double[] respawnTimes = new double[count];
+                int fruit = 0;
+                for (int i = 0; i < count; i++) {
+                    fruit += VarInts.readUnsigned(in);
+                    fruits[i] = fruit;
+                    respawnTimes[i] = worldTime + in.readFloat();
+                }
+                chunks[c] = new ChunkFruits(chunkId, fruitCount, fruits, respawnTimes);
+            }
+            return new GameSnapshot(seed, density, windowWidth, windowHeight, worldTime,
+                    avatarX, avatarY, velocityX, velocityY, energy, state, facingLeft,
+                    activeIds, retainedIds, chunks);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read saved game " + path, e);
+        }
+    }
+
+    /**
+     * Checks that the game resuming the snapshot generates the same world: chunk ids and
+     * terrain heights depend on the window dimensions.
+     *
+     * @param windowDimensions the resuming game's window dimensions
+     */
+    public void checkWindow(Vector2 windowDimensions) {
+        if ((int) windowDimensions.x() != windowWidth
+                || (int) windowDimensions.y() != windowHeight) {
+            throw new IllegalStateException("game was saved with a " + windowWidth + "x"
+                    + windowHeight + " window");
+        }
+    }
+
+    /**
+     * Gives the saved eaten fruits to a flora as the kept states of released chunks, so
+     * each chunk's trees get them when it is generated. Must be called before any chunk
+     * is generated, with a flora of the snapshot's seed and density.
+     *
+     * @param flora the resuming game's flora
+     */
+    public void restoreFruits(Flora flora) {
+        for (ChunkFruits saved : chunks) {
+            FruitState fruits = new FruitState(saved.fruitCount, saved.chunkId * windowWidth);
+            for (int i = 0; i < saved.fruits.length; i++) {
+                fruits.eat(saved.fruits[i], saved.respawnTimes[i]);
+            }
+            flora.keepReleasedFruits(fruits);
+        }
+    }
+
+    /**
+     * Makes the saved chunks resident again, after the viewers have referenced their own
+     * windows: saved chunks outside them are generated and kept disabled, the retained ones
+     * first, in the order they were retained. Call {@link #restoreFruits} first.
+     *
+     * @param residency the resuming game's residency
+     */
+    public void restoreChunks(ChunkResidency residency) {
+        for (int id : retainedIds) {
+            residency.retain(id);
+        }
+        for (int id : activeIds) {
+            residency.retain(id);
+        }
+    }
+
+    /** @return the seed the world was generated from */
+    public int seed() {
+        return seed;
+    }
+
+    /** @return the density profile the world was generated with */
+    public DensityProfile density() {
+        return density;
+    }
+
+    /** @return the world clock's time */
+    public double worldTime() {
+        return worldTime;
+    }
+
+    /** @return the avatar's top-left corner */
+    public Vector2 avatarTopLeft() {
+        return new Vector2(avatarX, avatarY);
+    }
+
+    /**
+     * Puts an avatar created at {@link #avatarTopLeft()} back in the saved state.
+     *
+     * @param avatar the avatar
+     */
+    public void restoreAvatar(Avatar avatar) {
+        avatar.restore(new Vector2(velocityX, velocityY), energy, state, facingLeft);
+    }
+}
@@ -0,0 +1,169 @@
+package pepse.tools;
+
+import danogl.util.Vector2;
+import pepse.utils.AllocationBudgets;
+import pepse.utils.AllocationMeter;
+import pepse.world.Block;
+import pepse.world.Terrain;
+import pepse.world.WorldClock;
+import pepse.world.daynight.Night;
+import pepse.world.trees.Flora;
+import pepse.world.trees.Tree;
+import pepse.world.trees.TreePartsPool;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Measures the bytes allocated by the world generators and checks them against the
+ * budgets checked in with the sources, so a change that starts producing garbage fails
+ * instead of going unnoticed.
+ * <p>
+ * Each operation is repeated on the same input: first until the JIT has compiled it,
+ * long enough for the Vector API noise kernel to lose its vector objects when
+ * {@code jdk.incubator.vector} is loaded, then measured with the thread's allocation
+ * counter, keeping the smallest reading. A chunk is well below the sizes the generators
+ * split across the fork-join pool, so its generation runs on the measuring thread, where
+ * the counter sees it.
+ * Pooled objects are released between repetitions, so what is measured is the steady
+ * state of a long session, where blocks and tree parts come from the pools.
+ * <p>
+ * Measured: {@code terrain.createInRange} (one chunk), {@code flora.createInRange}
+ * (one chunk's trees) and {@code tree.new} (one tree). A steady-state game frame, which
+ * includes {@code Avatar.update}, needs a window; it is checked by the game itself against
+ * the {@code frame.steadyState} budget of the same file when run with
+ * {@code -Dpepse.allocationReport=true -Dpepse.allocationBudgets=FILE}.
+ * <p>
+ * Prints each measurement next to its budget and exits with status 1 if any exceeds it
+ * or has none. With {@code --update} the measurements are written as the new budgets;
+ * budgets this tool does not measure are kept.
+ * <p>
+ * Usage: {@code AllocationBudgetCheck [budgets file] [--update]}
+ */
+public final class AllocationBudgetCheck {
+
+    private static final String DEFAULT_BUDGETS = "allocation-budgets.properties";
+    private static final String UPDATE_OPTION = "--update";
+    private static final int SEED = 30;
+    private static final Vector2 WINDOW_DIMENSIONS = new Vector2(800, 600);
+    private static final int CHUNK_ID = 3;
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURED_ROUNDS = 50;
+    private static final String ROW_FORMAT = "%-24s %10s %10s %10s  %s%n";
+
+    private final Terrain terrain;
+    private final Flora flora;
+    private final TreePartsPool parts;
+    private final int minX;
+    private final int maxX;
+
+    private AllocationBudgetCheck() {
+        WorldClock clock = new WorldClock();
+        Night night = new Night(clock, WorldClock.DAY_CYCLE_LENGTH);
+        terrain = new Terrain(WINDOW_DIMENSIONS, SEED, night);
+        flora = new Flora(terrain::groundHeightAt, SEED, night, clock);
+        parts = new TreePartsPool(Tree.LEAF_DIMENSIONS, Tree.FRUIT_DIMENSIONS, night, clock);
+        minX = CHUNK_ID * (int) WINDOW_DIMENSIONS.x();
+        maxX = minX + (int) WINDOW_DIMENSIONS.x();
+    }
+
+    /**
+     * Entry point of the check.
+     *
+     * @param args optionally the budgets file, and {@value #UPDATE_OPTION}
+     */
+    public static void main(String[] args) {
+        String path = DEFAULT_BUDGETS;
+        boolean update = false;
+        for (String arg : args) {
+            if (arg.equals(UPDATE_OPTION)) {
+                update = true;
+            } else {
+                path = arg;
+            }
+        }
+        if (!AllocationMeter.isSupported()) {
+            System.err.println("allocation counters are not supported on this JVM");
+            System.exit(1);
+        }
+
+        Map<String, Long> measured = new AllocationBudgetCheck().measureAll();
+        if (update) {
+            Map<String, Long> budgets = new File(path).exists()
+                    ? AllocationBudgets.load(path).asMap() : new TreeMap<>();
+            budgets.putAll(measured);
+            AllocationBudgets.save(path, "bytes allocated, see AllocationBudgetCheck", budgets);
+            System.out.println("wrote " + budgets.size() + " budgets to " + path);
+            return;
+        }
+
+        AllocationBudgets budgets = AllocationBudgets.load(path);
+        boolean failed = false;
+        System.out.printf(ROW_FORMAT, "operation", "budget", "measured", "diff", "");
+        for (Map.Entry<String, Long> entry : measured.entrySet()) {
+            long budget = budgets.get(entry.getKey());
+            long bytes = entry.getValue();
+            String verdict;
+            if (budget < 0) {
+                verdict = "NO BUDGET";
+                failed = true;
+            } else if (bytes > budget) {
+                verdict = "OVER BUDGET";
+                failed = true;
+            } else {
+                verdict = "ok";
+            }
+            System.out.printf(ROW_FORMAT, entry.getKey(), budget < 0 ? "-" : budget, bytes,
+                    budget < 0 ? "-" : String.format("%+d", bytes - budget), verdict);
+        }
+        if (failed) System.exit(1);
+    }
+
+    private Map<String, Long> measureAll() {
+        Map<String, Long> measured = new LinkedHashMap<>();
+        measured.put("terrain.createInRange", measure(this::terrainRound));
+        measured.put("flora.createInRange", measure(this::floraRound));
+        measured.put("tree.new", measure(this::treeRound));
+        return measured;
+    }
+
+    private long terrainRound() {
+        long start = AllocationMeter.allocatedBytes();
+        ArrayList<Block> blocks = terrain.createInRange(minX, maxX);
+        long bytes = AllocationMeter.allocatedBytes() - start;
+        terrain.releaseBlocks(blocks);
+        return bytes;
+    }
+
+    private long floraRound() {
+        long start = AllocationMeter.allocatedBytes();
+        ArrayList<Tree> trees = flora.createInRange(minX, maxX);
+        long bytes = AllocationMeter.allocatedBytes() - start;
+        flora.releaseTrees(trees);
+        return bytes;
+    }
+
+    private long treeRound() {
+        Vector2 groundTopLeft = new Vector2(minX, terrain.columnTopAt(minX));
+        long start = AllocationMeter.allocatedBytes();
+        Tree tree = new Tree(groundTopLeft, parts);
+        long bytes = AllocationMeter.allocatedBytes() - start;
+        parts.release(tree);
+        return bytes;
+    }
+
+    private static long measure(LongSupplier round) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round.getAsLong();
+        }
+        long smallest = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            smallest = Math.min(smallest, round.getAsLong());
+        }
+        return smallest;
+    }
+}
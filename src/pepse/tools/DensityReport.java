@@ -0,0 +1,128 @@
+package pepse.tools;
+
+import danogl.util.Vector2;
+import pepse.world.Block;
+import pepse.world.DensityProfile;
+import pepse.world.Terrain;
+import pepse.world.WorldClock;
+import pepse.world.daynight.Night;
+import pepse.world.trees.Flora;
+import pepse.world.trees.Tree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the same stretch of the world with each density profile and reports, per
+ * chunk, how many objects the profile puts into the game and how long generating them
+ * and materializing every canopy takes, without a window.
+ * <p>
+ * The counts are what a chunk adds to the game when fully in view (all canopies
+ * materialized), so together with the game's timing log
+ * ({@code -Dpepse.timings=FILE -Dpepse.density=PROFILE}, which records frame times and
+ * object counts) they show at which density a machine falls below its target frame rate.
+ * <p>
+ * Usage: {@code DensityReport [--density-file FILE] [--chunks N] [profile...]};
+ * without profiles, every profile of the file is reported in file order.
+ */
+public final class DensityReport {
+
+    private static final String DEFAULT_DENSITY_FILE = "density-profiles.properties";
+    private static final int DEFAULT_CHUNKS = 200;
+    private static final int SEED = 30;
+    private static final Vector2 WINDOW_DIMENSIONS = new Vector2(800, 600);
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final String HEADER_FORMAT = "%-12s %8s %8s %8s %8s %10s %10s %10s%n";
+    private static final String ROW_FORMAT = "%-12s %8.1f %8.2f %8.1f %8.1f %10.1f %10.3f %10.3f%n";
+
+    private enum Total { BLOCKS, TREES, LEAVES, FRUITS, GENERATION_NANOS, CANOPY_NANOS }
+
+    private DensityReport() {}
+
+    /**
+     * Entry point of the report.
+     *
+     * @param args options and profile names, see the class documentation
+     */
+    public static void main(String[] args) {
+        String densityFile = DEFAULT_DENSITY_FILE;
+        int chunks = DEFAULT_CHUNKS;
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--density-file" -> densityFile = args[++i];
+                case "--chunks" -> chunks = Integer.parseInt(args[++i]);
+                default -> names.add(args[i]);
+            }
+        }
+
+        Map<String, DensityProfile> profiles = DensityProfile.loadAll(densityFile);
+        if (names.isEmpty()) names.addAll(profiles.keySet());
+
+        System.out.printf(HEADER_FORMAT, "profile", "blocks", "trees", "leaves", "fruits",
+                "objects", "gen ms", "canopy ms");
+        for (String name : names) {
+            DensityProfile profile = profiles.get(name);
+            if (profile == null && name.equals(DensityProfile.DEFAULT.getName())) {
+                profile = DensityProfile.DEFAULT;
+            }
+            if (profile == null) {
+                throw new IllegalArgumentException(
+                        "no density profile " + name + " in " + densityFile);
+            }
+            report(profile, chunks);
+        }
+    }
+
+    private static void report(DensityProfile profile, int chunks) {
+        WorldClock clock = new WorldClock();
+        Night night = new Night(clock, WorldClock.DAY_CYCLE_LENGTH);
+        Terrain terrain = new Terrain(WINDOW_DIMENSIONS, SEED, profile, night);
+        Flora flora = new Flora(terrain::groundHeightAt, profile, night, clock);
+
+        generate(terrain, flora, chunks, null);     // warm-up, and fills the pools
+        long[] totals = new long[Total.values().length];
+        generate(terrain, flora, chunks, totals);
+
+        long blocks = totals[Total.BLOCKS.ordinal()];
+        long trees = totals[Total.TREES.ordinal()];
+        long leaves = totals[Total.LEAVES.ordinal()];
+        long fruits = totals[Total.FRUITS.ordinal()];
+        System.out.printf(ROW_FORMAT, profile.getName(),
+                (double) blocks / chunks, (double) trees / chunks,
+                (double) leaves / chunks, (double) fruits / chunks,
+                (double) (blocks + trees + leaves + fruits) / chunks,
+                totals[Total.GENERATION_NANOS.ordinal()] / NANOS_PER_MILLI / chunks,
+                totals[Total.CANOPY_NANOS.ordinal()] / NANOS_PER_MILLI / chunks);
+    }
+
+    // generates and releases the chunks one by one, adding to the totals if given
+    private static void generate(Terrain terrain, Flora flora, int chunks, long[] totals) {
+        int width = (int) WINDOW_DIMENSIONS.x();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int minX = chunk * width;
+            long start = System.nanoTime();
+            ArrayList<Block> blocks = terrain.createInRange(minX, minX + width);
+            ArrayList<Tree> trees = flora.createInRange(minX, minX + width);
+            long generated = System.nanoTime();
+            for (Tree tree : trees) {
+                tree.materializeCanopy();
+            }
+            long materialized = System.nanoTime();
+
+            if (totals != null) {
+                totals[Total.BLOCKS.ordinal()] += blocks.size();
+                totals[Total.TREES.ordinal()] += trees.size();
+                for (Tree tree : trees) {
+                    totals[Total.LEAVES.ordinal()] += tree.getTreeLeaves().size();
+                    totals[Total.FRUITS.ordinal()] += tree.getFruits().size();
+                }
+                totals[Total.GENERATION_NANOS.ordinal()] += generated - start;
+                totals[Total.CANOPY_NANOS.ordinal()] += materialized - generated;
+            }
+            terrain.releaseBlocks(blocks);
+            flora.releaseTrees(trees);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package pepse.tools;
+
+import pepse.utils.NoiseGenerator;
+import pepse.world.Block;
+
+/**
+ * Checks and measures {@link NoiseGenerator#noiseBatch} against the scalar
+ * {@link NoiseGenerator#noise} on chunk-wide height generation, as done by the terrain.
+ * <p>
+ * Every chunk is first evaluated both ways and compared; the tool exits with status 1 if
+ * any value differs by more than {@value #EPSILON}. Then both paths are timed over the same
+ * chunks after a warm-up, and the speedup is printed. The batch runs on the Vector API
+ * only if the JVM is started with {@code --add-modules jdk.incubator.vector}; the output
+ * tells which path was measured.
+ * <p>
+ * Usage: {@code NoiseBenchmark [chunks] [seed]}
+ */
+public final class NoiseBenchmark {
+
+    private static final int DEFAULT_CHUNKS = 20_000;
+    private static final int DEFAULT_SEED = 30;
+    private static final int CHUNK_WIDTH = 800;
+    private static final int START_POINT = 400;          // ground height of a 600 pixel window
+    private static final double NOISE_FACTOR = 210;
+    private static final double EPSILON = 1e-9;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int TIMED_ROUNDS = 5;
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private NoiseBenchmark() {}
+
+    /**
+     * Entry point of the benchmark.
+     *
+     * @param args optionally the number of chunks and the noise seed
+     */
+    public static void main(String[] args) {
+        int chunks = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHUNKS;
+        int seed = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SEED;
+        NoiseGenerator noise = new NoiseGenerator(seed, START_POINT);
+        int columns = (CHUNK_WIDTH + Block.SIZE - 1) / Block.SIZE;
+        double[] batch = new double[columns];
+
+        double maxError = 0;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int firstX = firstColumnX(chunk);
+            noise.noiseBatch(firstX, Block.SIZE, columns, NOISE_FACTOR, batch);
+            for (int i = 0; i < columns; i++) {
+                double scalar = noise.noise(firstX + i * Block.SIZE, NOISE_FACTOR);
+                maxError = Math.max(maxError, Math.abs(scalar - batch[i]));
+            }
+        }
+        System.out.printf("max difference over %d chunks: %g%n", chunks, maxError);
+        if (maxError > EPSILON) {
+            System.exit(1);
+        }
+
+        double sink = 0;
+        long scalarNanos = 0;
+        long batchNanos = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int firstX = firstColumnX(chunk);
+                for (int i = 0; i < columns; i++) {
+                    sink += noise.noise(firstX + i * Block.SIZE, NOISE_FACTOR);
+                }
+            }
+            long middle = System.nanoTime();
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                noise.noiseBatch(firstColumnX(chunk), Block.SIZE, columns, NOISE_FACTOR, batch);
+                sink += batch[columns - 1];
+            }
+            long end = System.nanoTime();
+            if (round >= WARMUP_ROUNDS) {
+                scalarNanos += middle - start;
+                batchNanos += end - middle;
+            }
+        }
+        System.out.printf("scalar: %.1f ms, %s batch: %.1f ms per %d chunks, speedup %.2fx (%s)%n",
+                scalarNanos / NANOS_PER_MILLI / TIMED_ROUNDS,
+                NoiseGenerator.isVectorized() ? "vector" : "scalar",
+                batchNanos / NANOS_PER_MILLI / TIMED_ROUNDS,
+                chunks, (double) scalarNanos / batchNanos, sink != 0 ? "ok" : "no output");
+    }
+
+    private static int firstColumnX(int chunk) {
+        return Math.floorDiv(chunk * CHUNK_WIDTH, Block.SIZE) * Block.SIZE;
+    }
+}
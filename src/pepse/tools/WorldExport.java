@@ -0,0 +1,361 @@
+package pepse.tools;
+
+import danogl.util.Vector2;
+import pepse.utils.VarInts;
+import pepse.world.Block;
+import pepse.world.DensityProfile;
+import pepse.world.HeightProfile;
+import pepse.world.Terrain;
+import pepse.world.WorldClock;
+import pepse.world.daynight.Night;
+import pepse.world.trees.Flora;
+import pepse.world.trees.TreeSpec;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Generates the column heights and tree placements of a large stretch of the world
+ * offline, without the game loop, and writes them to a compact binary file and
+ * optionally a PNG overview.
+ * <p>
+ * The same {@link Terrain} and {@link Flora} the game uses compute the world, so the
+ * output matches what the game would generate for the same seed and window size.
+ * No game objects are created: heights come from {@link Terrain#columnTopsAt}, trees from
+ * {@link Flora#placeInRange} and {@link TreeSpec#at(int, int, DensityProfile)}. The range
+ * is split into segments of whole chunks (trees are placed per chunk) that are generated
+ * on all cores and written in order. With {@code --density} the world is generated with
+ * a profile of the density file instead of the default density.
+ * <p>
+ * With {@code --octaves N} the heights are a coarse preview evaluated from only the first
+ * N noise octaves (see {@link pepse.world.HeightProfile}), for quick seed surveys; tree
+ * placement is always exact.
+ * <p>
+ * File format: a header (magic, version, seed, window width and height, block size, first
+ * chunk, chunk count, chunks per segment, segment count, noise octaves used as ints, then
+ * the density profile as written by {@link DensityProfile#write}), then each segment as a
+ * variable-length byte count followed by its column count, the first column's top row,
+ * the signed row deltas of the following columns, its tree count, and for each tree the
+ * signed column delta from the previous tree (or the segment's first column; a chunk's
+ * trees may start a column before it, as in the game), the trunk height
+ * and the canopy half-size. A tree stands on the top of its column. Integers after the
+ * header use {@link VarInts}.
+ * <p>
+ * Usage: {@code WorldExport <output> [--seed S] [--first-chunk C] [--chunks N]
+ * [--window-width W] [--window-height H] [--segment-chunks K] [--octaves N] [--png FILE]
+ * [--png-width P] [--density PROFILE] [--density-file FILE]}
+ */
+public final class WorldExport {
+
+    private static final int MAGIC = 0x50574558;   // "PWEX"
+    private static final int VERSION = 3;
+
+    private static final int DEFAULT_SEED = 30;
+    private static final int DEFAULT_CHUNKS = 100_000;
+    private static final int DEFAULT_WINDOW_WIDTH = 800;
+    private static final int DEFAULT_WINDOW_HEIGHT = 600;
+    private static final int DEFAULT_SEGMENT_CHUNKS = 256;
+    private static final int DEFAULT_PNG_WIDTH = 2048;
+    private static final int ALL_OCTAVES = Integer.MAX_VALUE;
+    private static final int PNG_HEIGHT = 512;
+    private static final String DEFAULT_DENSITY_FILE = "density-profiles.properties";
+
+    private static final Color SKY_COLOR = Color.decode("#80C6E5");
+    private static final Color GROUND_COLOR = new Color(212, 123, 74);
+    private static final Color TREE_COLOR = new Color(50, 160, 30);
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final Terrain terrain;
+    private final Flora flora;
+    private final int seed;
+    private final int windowWidth;
+    private final int windowHeight;
+    private final int firstChunk;
+    private final int chunkCount;
+    private final int segmentChunks;
+    private final long firstColumn;
+    private final long columnCount;
+    private final int pngWidth;
+    private final int octaves;
+    private final DensityProfile density;
+
+    /**
+     * The output of one segment: its encoded bytes and, if an overview is drawn,
+     * the highest ground and tree top of each image column it touches.
+     */
+    private static final class Segment {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int columns;
+        private int trees;
+        private int firstPixel;
+        private int[] groundTops;
+        private int[] treeTops;
+    }
+
+    private WorldExport(int seed, int windowWidth, int windowHeight, int firstChunk,
+                        int chunkCount, int segmentChunks, int octaves, int pngWidth,
+                        DensityProfile density) {
+        WorldClock clock = new WorldClock();
+        Night night = new Night(clock, WorldClock.DAY_CYCLE_LENGTH);
+        this.terrain = new Terrain(new Vector2(windowWidth, windowHeight), seed, density, night);
+        this.flora = new Flora(terrain::groundHeightAt, density, night, clock);
+        this.density = density;
+        this.seed = seed;
+        this.windowWidth = windowWidth;
+        this.windowHeight = windowHeight;
+        this.firstChunk = firstChunk;
+        this.chunkCount = chunkCount;
+        this.segmentChunks = segmentChunks;
+        this.firstColumn = firstColumnAt((long) firstChunk * windowWidth);
+        this.columnCount =
+                firstColumnAt((long) (firstChunk + chunkCount) * windowWidth) - firstColumn;
+        this.pngWidth = pngWidth;
+        this.octaves = octaves;
+    }
+
+    /**
+     * Entry point of the export tool.
+     *
+     * @param args the output file followed by options, see the class documentation
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("usage: WorldExport <output> [--seed S] [--first-chunk C]"
+                    + " [--chunks N] [--window-width W] [--window-height H] [--segment-chunks K]"
+                    + " [--octaves N] [--png FILE] [--png-width P] [--density PROFILE]"
+                    + " [--density-file FILE]");
+            System.exit(1);
+        }
+        String output = args[0];
+        int seed = DEFAULT_SEED;
+        int firstChunk = 0;
+        int chunks = DEFAULT_CHUNKS;
+        int windowWidth = DEFAULT_WINDOW_WIDTH;
+        int windowHeight = DEFAULT_WINDOW_HEIGHT;
+        int segmentChunks = DEFAULT_SEGMENT_CHUNKS;
+        String png = null;
+        int pngWidth = DEFAULT_PNG_WIDTH;
+        int octaves = ALL_OCTAVES;
+        String densityName = null;
+        String densityFile = DEFAULT_DENSITY_FILE;
+        for (int i = 1; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("missing value for " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--seed" -> seed = Integer.parseInt(value);
+                case "--first-chunk" -> firstChunk = Integer.parseInt(value);
+                case "--chunks" -> chunks = Integer.parseInt(value);
+                case "--window-width" -> windowWidth = Integer.parseInt(value);
+                case "--window-height" -> windowHeight = Integer.parseInt(value);
+                case "--segment-chunks" -> segmentChunks = Integer.parseInt(value);
+                case "--octaves" -> octaves = Integer.parseInt(value);
+                case "--png" -> png = value;
+                case "--png-width" -> pngWidth = Integer.parseInt(value);
+                case "--density" -> densityName = value;
+                case "--density-file" -> densityFile = value;
+                default -> throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        DensityProfile density = densityName == null
+                ? DensityProfile.DEFAULT : DensityProfile.load(densityFile, densityName);
+        WorldExport export = new WorldExport(seed, windowWidth, windowHeight, firstChunk,
+                chunks, segmentChunks, octaves, png != null ? pngWidth : 0, density);
+        export.run(output, png);
+    }
+
+    private void run(String output, String png) {
+        long start = System.nanoTime();
+        int segmentCount = (chunkCount + segmentChunks - 1) / segmentChunks;
+        List<CompletableFuture<Segment>> segments = new ArrayList<>(segmentCount);
+        for (int s = 0; s < segmentCount; s++) {
+            int segmentFirstChunk = firstChunk + s * segmentChunks;
+            int segmentEndChunk =
+                    Math.min(segmentFirstChunk + segmentChunks, firstChunk + chunkCount);
+            segments.add(CompletableFuture.supplyAsync(
+                    () -> generateSegment(segmentFirstChunk, segmentEndChunk)));
+        }
+
+        int[] groundTops = new int[pngWidth];
+        int[] treeTops = new int[pngWidth];
+        Arrays.fill(groundTops, Integer.MAX_VALUE);
+        Arrays.fill(treeTops, Integer.MAX_VALUE);
+        long columns = 0;
+        long trees = 0;
+        long bytes;
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(output)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(seed);
+            out.writeInt(windowWidth);
+            out.writeInt(windowHeight);
+            out.writeInt(Block.SIZE);
+            out.writeInt(firstChunk);
+            out.writeInt(chunkCount);
+            out.writeInt(segmentChunks);
+            out.writeInt(segmentCount);
+            out.writeInt(octaves);
+            density.write(out);
+            for (CompletableFuture<Segment> future : segments) {
+                Segment segment = future.join();
+                VarInts.writeUnsigned(out, segment.bytes.size());
+                segment.bytes.writeTo(out);
+                columns += segment.columns;
+                trees += segment.trees;
+                if (pngWidth > 0) mergeOverview(segment, groundTops, treeTops);
+            }
+            bytes = out.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write world export " + output, e);
+        }
+        if (png != null) writeOverview(png, groundTops, treeTops);
+
+        double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+        System.out.printf("%d columns, %d trees, %d bytes in %.2f s (%.0f columns/s, %d threads)%n",
+                columns, trees, bytes, seconds, columns / seconds,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    // runs on a worker thread; touches only the thread-safe generation paths
+    private Segment generateSegment(int segmentFirstChunk, int segmentEndChunk) {
+        Segment segment = new Segment();
+        DataOutputStream out = new DataOutputStream(segment.bytes);
+        long minX = (long) segmentFirstChunk * windowWidth;
+        long maxX = (long) segmentEndChunk * windowWidth;
+        long segmentFirstColumn = firstColumnAt(minX);
+        int columns = (int) (firstColumnAt(maxX) - segmentFirstColumn);
+
+        if (pngWidth > 0) {
+            segment.firstPixel = pixelOf(segmentFirstColumn);
+            int pixels = pixelOf(segmentFirstColumn + columns - 1) - segment.firstPixel + 1;
+            segment.groundTops = new int[pixels];
+            segment.treeTops = new int[pixels];
+            Arrays.fill(segment.groundTops, Integer.MAX_VALUE);
+            Arrays.fill(segment.treeTops, Integer.MAX_VALUE);
+        }
+
+        try {
+            VarInts.writeUnsigned(out, columns);
+            int[] tops = columnTops((int) (segmentFirstColumn * Block.SIZE), columns);
+            int previousRow = 0;
+            for (int i = 0; i < columns; i++) {
+                long column = segmentFirstColumn + i;
+                int top = tops[i];
+                int row = Math.floorDiv(top, Block.SIZE);
+                if (i == 0) {
+                    VarInts.writeSigned(out, row);
+                } else {
+                    VarInts.writeSigned(out, row - previousRow);
+                }
+                previousRow = row;
+                if (pngWidth > 0) {
+                    int pixel = pixelOf(column) - segment.firstPixel;
+                    segment.groundTops[pixel] = Math.min(segment.groundTops[pixel], top);
+                }
+            }
+            segment.columns = columns;
+
+            List<TreeSpec> specs = new ArrayList<>();
+            for (int chunk = segmentFirstChunk; chunk < segmentEndChunk; chunk++) {
+                int chunkMinX = chunk * windowWidth;
+                flora.placeInRange(chunkMinX, chunkMinX + windowWidth,
+                        (x, groundY) -> specs.add(TreeSpec.at(x, groundY, density)));
+            }
+            VarInts.writeUnsigned(out, specs.size());
+            long previousColumn = segmentFirstColumn;
+            for (TreeSpec spec : specs) {
+                long column = Math.floorDiv(spec.getX(), Block.SIZE);
+                VarInts.writeSigned(out, (int) (column - previousColumn));
+                VarInts.writeUnsigned(out, spec.getTrunkHeight());
+                VarInts.writeUnsigned(out, spec.getCanopyHalfSize());
+                previousColumn = column;
+                if (pngWidth > 0) markTree(segment, column, spec);
+            }
+            segment.trees = specs.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(
+                    "cannot encode segment at chunk " + segmentFirstChunk, e);
+        }
+        return segment;
+    }
+
+    private int[] columnTops(int firstX, int columns) {
+        int[] tops = new int[columns];
+        if (octaves == ALL_OCTAVES) {
+            terrain.columnTopsAt(firstX, columns, tops);
+        } else {
+            HeightProfile profile =
+                    terrain.previewRange(firstX, firstX + columns * Block.SIZE, octaves);
+            for (int i = 0; i < columns; i++) {
+                tops[i] = profile.columnTop(i);
+            }
+        }
+        return tops;
+    }
+
+    private void markTree(Segment segment, long column, TreeSpec spec) {
+        int pixel = pixelOf(column) - segment.firstPixel;
+        if (pixel < 0 || pixel >= segment.treeTops.length) return;
+        int top = spec.getGroundY() - spec.getTrunkHeight() - spec.getCanopyHalfSize();
+        segment.treeTops[pixel] = Math.min(segment.treeTops[pixel], top);
+    }
+
+    // columns are the block-aligned x-coordinates, as generated by Terrain
+    private static long firstColumnAt(long x) {
+        return Math.floorDiv(x + Block.SIZE - 1, Block.SIZE);
+    }
+
+    private int pixelOf(long column) {
+        return (int) ((column - firstColumn) * pngWidth / columnCount);
+    }
+
+    private static void mergeOverview(Segment segment, int[] groundTops, int[] treeTops) {
+        for (int i = 0; i < segment.groundTops.length; i++) {
+            int pixel = segment.firstPixel + i;
+            groundTops[pixel] = Math.min(groundTops[pixel], segment.groundTops[i]);
+            treeTops[pixel] = Math.min(treeTops[pixel], segment.treeTops[i]);
+        }
+    }
+
+    private void writeOverview(String path, int[] groundTops, int[] treeTops) {
+        int minY = Integer.MAX_VALUE;
+        for (int i = 0; i < pngWidth; i++) {
+            minY = Math.min(minY, Math.min(groundTops[i], treeTops[i]));
+        }
+        int maxY = terrain.getTerrainBottom();
+        float scale = (float) (PNG_HEIGHT - 1) / Math.max(1, maxY - minY);
+
+        BufferedImage image = new BufferedImage(pngWidth, PNG_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < pngWidth; x++) {
+            int groundPixel = (int) ((groundTops[x] - minY) * scale);
+            int treePixel = treeTops[x] == Integer.MAX_VALUE
+                    ? groundPixel : (int) ((treeTops[x] - minY) * scale);
+            for (int y = 0; y < PNG_HEIGHT; y++) {
+                Color color = y >= groundPixel ? GROUND_COLOR
+                        : y >= treePixel ? TREE_COLOR
+                        : SKY_COLOR;
+                image.setRGB(x, y, color.getRGB());
+            }
+        }
+        try {
+            ImageIO.write(image, "png", new File(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write overview " + path, e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package pepse.utils;
+
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * A checked-in set of allocation budgets: the most bytes a named operation may allocate,
+ * kept in a properties file of {@code name=bytes} lines.
+ */
+public class AllocationBudgets {
+
+    private final TreeMap<String, Long> budgets = new TreeMap<>();
+
+    private AllocationBudgets() {}
+
+    /**
+     * Reads budgets from a properties file.
+     *
+     * @param path the file to read
+     * @return the budgets in the file
+     */
+    public static AllocationBudgets load(String path) {
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(path)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read allocation budgets " + path, e);
+        }
+        AllocationBudgets loaded = new AllocationBudgets();
+        for (String name : properties.stringPropertyNames()) {
+            loaded.budgets.put(name, Long.parseLong(properties.getProperty(name).trim()));
+        }
+        return loaded;
+    }
+
+    /**
+     * Writes budgets to a properties file, one per line in name order.
+     *
+     * @param path    the file to write
+     * @param comment a comment line written first
+     * @param budgets bytes by operation name
+     */
+    public static void save(String path, String comment, Map<String, Long> budgets) {
+        try (Writer writer = new FileWriter(path)) {
+            writer.write("# " + comment + System.lineSeparator());
+            for (Map.Entry<String, Long> entry : new TreeMap<>(budgets).entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue() + System.lineSeparator());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write allocation budgets " + path, e);
+        }
+    }
+
+    /** @return a copy of the budgets, bytes by operation name */
+    public Map<String, Long> asMap() {
+        return new TreeMap<>(budgets);
+    }
+
+    /**
+     * @param name the name of an operation
+     * @return the bytes the operation may allocate, or -1 if it has no budget
+     */
+    public long get(String name) {
+        Long budget = budgets.get(name);
+        return budget == null ? -1 : budget;
+    }
+}
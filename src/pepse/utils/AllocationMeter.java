@@ -0,0 +1,44 @@
+package pepse.utils;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated by the current thread.
+ * <p>
+ * Relies on the HotSpot extension of {@link java.lang.management.ThreadMXBean};
+ * on JVMs without it every reading is {@code -1}.
+ */
+public final class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = threadBean();
+
+    private AllocationMeter() {}
+
+    /**
+     * @return whether allocation counters are available on this JVM
+     */
+    public static boolean isSupported() {
+        return THREAD_BEAN != null;
+    }
+
+    /**
+     * Returns the total number of bytes allocated by the current thread so far.
+     * Differences between two readings give the bytes allocated in between.
+     *
+     * @return allocated bytes, or -1 if unsupported
+     */
+    public static long allocatedBytes() {
+        if (THREAD_BEAN == null) return -1;
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported()) return null;
+        sunBean.setThreadAllocatedMemoryEnabled(true);
+        return sunBean;
+    }
+}
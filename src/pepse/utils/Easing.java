@@ -0,0 +1,34 @@
+package pepse.utils;
+
+/**
+ * Allocation-free easing curves for time-driven effects.
+ */
+public final class Easing {
+
+    private static final int BACK_AND_FORTH_PERIODS = 2;
+    private static final float SMOOTHSTEP_A = 3f;
+    private static final float SMOOTHSTEP_B = 2f;
+
+    private Easing() {}
+
+    /**
+     * Returns the value of a cubic back-and-forth transition: it eases from {@code start}
+     * to {@code end} over {@code duration} seconds, then back again, repeating forever.
+     *
+     * @param start    value at time 0
+     * @param end      value at time {@code duration}
+     * @param time     seconds since the transition started, non-negative
+     * @param duration seconds of a single one-way pass
+     * @return the interpolated value
+     */
+    public static float backAndForth(float start, float end, float time, float duration) {
+        float cycles = time / duration;
+        int whole = (int) cycles;
+        float t = cycles - whole;
+        if (whole % BACK_AND_FORTH_PERIODS != 0) {
+            t = 1f - t;
+        }
+        float eased = t * t * (SMOOTHSTEP_A - SMOOTHSTEP_B * t);
+        return start + (end - start) * eased;
+    }
+}
@@ -0,0 +1,52 @@
+package pepse.utils;
+
+/**
+ * Converts variable frame times into a whole number of fixed-length simulation ticks.
+ * <p>
+ * Frame time is accumulated and consumed in ticks of constant length, so simulation logic
+ * behaves the same regardless of frame rate. To keep the simulation cost of a single frame
+ * bounded, a frame never runs more than a maximum number of ticks; whole ticks beyond that
+ * are dropped rather than carried over (the simulation slows down instead of spiraling).
+ * The fraction of a tick left over is always carried over, and {@link #alpha()} tells how
+ * far the next tick is, for interpolating what is rendered between two ticks.
+ */
+public class FixedTimestep {
+
+    private final float tickLength;
+    private final int maxTicksPerFrame;
+    private float accumulator;
+
+    /**
+     * Constructs a new {@code FixedTimestep}.
+     *
+     * @param tickRate         simulation ticks per second
+     * @param maxTicksPerFrame the most ticks a single frame may run
+     */
+    public FixedTimestep(int tickRate, int maxTicksPerFrame) {
+        this.tickLength = 1f / tickRate;
+        this.maxTicksPerFrame = maxTicksPerFrame;
+    }
+
+    /**
+     * Adds a frame's time and returns how many ticks should run for it.
+     *
+     * @param deltaTime time elapsed since the last frame, in seconds
+     * @return the number of ticks to run now
+     */
+    public int advance(float deltaTime) {
+        accumulator += deltaTime;
+        int ticks = (int) (accumulator / tickLength);
+        accumulator = Math.max(0f, accumulator - ticks * tickLength);
+        return Math.min(ticks, maxTicksPerFrame);
+    }
+
+    /** @return the fraction of a tick accumulated towards the next one, in [0, 1) */
+    public float alpha() {
+        return Math.min(accumulator / tickLength, 1f);
+    }
+
+    /** @return the length of a single tick, in seconds */
+    public float tickLength() {
+        return tickLength;
+    }
+}
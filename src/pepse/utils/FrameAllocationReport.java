@@ -0,0 +1,86 @@
+package pepse.utils;
+
+/**
+ * Periodically prints how many bytes the game thread allocates per frame.
+ * <p>
+ * Each frame is measured from one {@link #frameStarted(float)} call to the next, so it
+ * includes updating and rendering. Frames that streamed world content (generating
+ * chunks or terrain bands, or moving canopies in and out of view) are counted
+ * separately, leaving the average of steady-state frames, which should stay
+ * close to zero. If a budget is given, intervals whose steady-state average exceeds it
+ * are reported as over budget.
+ */
+public class FrameAllocationReport {
+
+    private static final float REPORT_INTERVAL = 5f;
+    private static final String REPORT_FORMAT =
+            "[alloc] steady-state: %d frames, %.1f bytes/frame; streaming: %d frames%n";
+    private static final String OVER_BUDGET_FORMAT =
+            "[alloc] OVER BUDGET: steady-state %.1f bytes/frame, budget %d (%+.1f)%n";
+    private static final long NO_BUDGET = -1;
+
+    private final long steadyBudget;
+
+    private long lastReading = -1;
+    private boolean generationInFrame;
+    private long steadyBytes;
+    private int steadyFrames;
+    private int generationFrames;
+    private float sinceReport;
+
+    /** Constructs a report with no budget. */
+    public FrameAllocationReport() {
+        this(NO_BUDGET);
+    }
+
+    /**
+     * Constructs a report that flags steady-state frames allocating more than a budget.
+     *
+     * @param steadyBudget the bytes a steady-state frame may allocate on average
+     */
+    public FrameAllocationReport(long steadyBudget) {
+        this.steadyBudget = steadyBudget;
+    }
+
+    /**
+     * Closes the measurement of the previous frame and starts a new one.
+     *
+     * @param deltaTime time elapsed since the last frame
+     */
+    public void frameStarted(float deltaTime) {
+        long reading = AllocationMeter.allocatedBytes();
+        if (lastReading >= 0) {
+            if (generationInFrame) {
+                generationFrames++;
+            } else {
+                steadyBytes += reading - lastReading;
+                steadyFrames++;
+            }
+        }
+        generationInFrame = false;
+
+        sinceReport += deltaTime;
+        if (sinceReport >= REPORT_INTERVAL) {
+            print();
+        }
+        // read again so the report itself is not charged to the next frame
+        lastReading = AllocationMeter.allocatedBytes();
+    }
+
+    /** Marks the current frame as one that streamed world content. */
+    public void markGeneration() {
+        generationInFrame = true;
+    }
+
+    private void print() {
+        double perFrame = steadyFrames == 0 ? 0 : (double) steadyBytes / steadyFrames;
+        System.out.printf(REPORT_FORMAT, steadyFrames, perFrame, generationFrames);
+        if (steadyBudget != NO_BUDGET && perFrame > steadyBudget) {
+            System.out.printf(OVER_BUDGET_FORMAT, perFrame, steadyBudget, perFrame - steadyBudget);
+        }
+        steadyBytes = 0;
+        steadyFrames = 0;
+        generationFrames = 0;
+        sinceReport = 0;
+    }
+}
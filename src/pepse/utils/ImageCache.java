@@ -0,0 +1,236 @@
+package pepse.utils;
+
+import danogl.gui.ImageReader;
+import danogl.gui.rendering.ImageRenderable;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Reads images like {@link ImageReader#readImage(String, boolean)} without transparency,
+ * but keeps their decoded pixels on disk so later runs do not decode them again.
+ * <p>
+ * Each image has an entry file in the cache directory holding its source path, the
+ * SHA-256 of the encoded source and its ARGB pixels. The source is looked up as
+ * {@link ImageReader} does: on the classpath, where the build copies the assets, and
+ * otherwise as a file relative to the working directory. An entry is memory-mapped and
+ * copied straight into the image's raster; it is used only if the path and hash match, so
+ * an image whose source changed is decoded and its entry rewritten. The source still has
+ * to be read to hash it, which costs far less than decoding it. Within a run each
+ * image is read once and then shared.
+ * <p>
+ * The cache is only an optimization: an image that cannot be found, or an entry that
+ * cannot be read or written, is decoded as if there were no cache, and images are read
+ * by the fallback {@link ImageReader} when caching is off.
+ */
+public class ImageCache {
+
+    /** System property naming the cache directory, or {@value #OFF} to disable the cache */
+    public static final String DIRECTORY_PROPERTY = "pepse.imageCache";
+    /** Value of {@link #DIRECTORY_PROPERTY} that disables the cache */
+    public static final String OFF = "off";
+
+    private static final String DEFAULT_DIRECTORY = ".pepse-cache/images";
+    private static final String ENTRY_SUFFIX = ".argb";
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private static final int MAGIC = 0x50494D47; // "PIMG"
+    private static final int VERSION = 1;
+
+    private final ImageReader fallback;
+    private final Path directory;
+    private final HashMap<String, ImageRenderable> loaded = new HashMap<>();
+
+    /**
+     * Constructs a cache in the directory named by {@value #DIRECTORY_PROPERTY}, by default
+     * {@value #DEFAULT_DIRECTORY} under the working directory.
+     *
+     * @param fallback reads images when caching is off or an image is not found
+     */
+    public ImageCache(ImageReader fallback) {
+        this(fallback, directoryFromProperty());
+    }
+
+    /**
+     * Constructs a cache in a given directory, created when the first entry is written.
+     *
+     * @param fallback  reads images when caching is off or an image is not found
+     * @param directory the cache directory, or null to disable caching
+     */
+    public ImageCache(ImageReader fallback, Path directory) {
+        this.fallback = fallback;
+        this.directory = directory;
+    }
+
+    /**
+     * Reads an image, from its cache entry if it is up to date.
+     *
+     * @param imagePath path of the image file
+     * @return the image
+     */
+    public ImageRenderable readImage(String imagePath) {
+        return loaded.computeIfAbsent(imagePath, this::load);
+    }
+
+    private ImageRenderable load(String imagePath) {
+        byte[] encoded = directory == null ? null : readSource(imagePath);
+        if (encoded == null) {
+            return fallback.readImage(imagePath, false);
+        }
+        byte[] hash = hash(encoded);
+        Path entry = directory.resolve(entryName(imagePath));
+
+        BufferedImage image = readEntry(entry, imagePath, hash);
+        if (image == null) {
+            image = decode(encoded);
+            if (image == null) return fallback.readImage(imagePath, false);
+            writeEntry(entry, imagePath, hash, image);
+        }
+        return new ImageRenderable(image);
+    }
+
+    // the encoded image, found as ImageReader finds it: a classpath resource (the assets
+    // next to the compiled classes), else a file; null if it is neither or unreadable
+    private static byte[] readSource(String imagePath) {
+        URL resource = ImageCache.class.getClassLoader().getResource(imagePath);
+        try {
+            if (resource != null) {
+                try (InputStream in = resource.openStream()) {
+                    return in.readAllBytes();
+                }
+            }
+            Path file = Path.of(imagePath);
+            return Files.isRegularFile(file) ? Files.readAllBytes(file) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // the entry's image, or null if it is missing, stale or unreadable
+    private static BufferedImage readEntry(Path entry, String imagePath, byte[] hash) {
+        if (!Files.isRegularFile(entry)) return null;
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.remaining() < 2 * Integer.BYTES) return null;
+            if (map.getInt() != MAGIC || map.getInt() != VERSION) return null;
+
+            byte[] path = imagePath.getBytes(StandardCharsets.UTF_8);
+            if (map.remaining() < Integer.BYTES || map.getInt() != path.length) return null;
+            if (map.remaining() < path.length + hash.length + 2 * Integer.BYTES) return null;
+            byte[] storedPath = new byte[path.length];
+            map.get(storedPath);
+            byte[] storedHash = new byte[hash.length];
+            map.get(storedHash);
+            if (!Arrays.equals(storedPath, path) || !Arrays.equals(storedHash, hash)) {
+                return null;
+            }
+
+            int width = map.getInt();
+            int height = map.getInt();
+            if (width <= 0 || height <= 0
+                    || map.remaining() != (long) width * height * Integer.BYTES) {
+                return null;
+            }
+            IntBuffer pixels = map.asIntBuffer();
+            int[] row = new int[width];
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            // through the raster, not its array, so Java2D can still accelerate the image
+            for (int y = 0; y < height; y++) {
+                pixels.get(row);
+                image.getRaster().setDataElements(0, y, width, 1, row);
+            }
+            return image;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // written to a temporary file and moved into place, so a reader never sees half an entry
+    private void writeEntry(Path entry, String imagePath, byte[] hash, BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] path = imagePath.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer bytes = ByteBuffer.allocate(
+                5 * Integer.BYTES + path.length + hash.length + width * height * Integer.BYTES);
+        bytes.putInt(MAGIC).putInt(VERSION).putInt(path.length).put(path).put(hash);
+        bytes.putInt(width).putInt(height);
+        bytes.asIntBuffer().put(image.getRGB(0, 0, width, height, null, 0, width));
+        bytes.rewind();
+
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, entry.getFileName().toString(), null);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // not cached; the image is decoded again next time
+            deleteQuietly(temporary);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // left for the next write of the entry to replace
+        }
+    }
+
+    // the decoded image as ARGB, or null if the bytes are not an image ImageIO can read
+    private static BufferedImage decode(byte[] encoded) {
+        try {
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(encoded));
+            if (decoded == null) return null;
+            int width = decoded.getWidth();
+            int height = decoded.getHeight();
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            image.setRGB(0, 0, width, height,
+                    decoded.getRGB(0, 0, width, height, null, 0, width), 0, width);
+            return image;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static byte[] hash(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM).digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+
+    // a file name unique enough; the full path stored in the entry settles collisions
+    private static String entryName(String imagePath) {
+        return imagePath.replaceAll("[^A-Za-z0-9._-]", "_") + ENTRY_SUFFIX;
+    }
+
+    private static Path directoryFromProperty() {
+        String directory = System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY);
+        return directory.equals(OFF) ? null : Path.of(directory);
+    }
+}
@@ -1,7 +1,15 @@
 package pepse.utils;
 
 public class NoiseGenerator {
+    // the x coefficient of each gradient direction, i.e. grad(hash, x, 0, 0) / x
+    private static final double[] GRADIENT_X =
+            {1, -1, 1, -1, 1, -1, 1, -1, 0, 0, 0, 0, 1, 0, -1, 0};
+    // the Vector API is an incubator module, present only if the JVM was run with it added
+    private static final boolean VECTOR_API =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
     private double seed;
+    private double[] gradientX;    // per cell, for an integral seed; null otherwise
     private long default_size;
     private int[] p;
     private int[] permutation;
@@ -23,6 +31,9 @@ public class NoiseGenerator {
         this.seed = seed;
         this.startPoint = startPoint;
         init();
+        if (seed == Math.floor(seed)) {
+            initGradients();
+        }
     }
 
     private void init() {
@@ -57,6 +68,25 @@ public class NoiseGenerator {
 
     }
 
+    // sampling along x only, y is the seed's cell and z is 0: each cell's gradient reduces
+    // to its x coefficient, looked up once here instead of through the table per sample
+    private void initGradients() {
+        int Y = (int) Math.floor(seed) & 255;
+        gradientX = new double[257];
+        for (int X = 0; X < gradientX.length; X++) {
+            gradientX[X] = GRADIENT_X[p[p[p[X] + Y]] & 15];
+        }
+    }
+
+    /**
+     * @return whether {@link #noiseBatch} and {@link #accumulateOctaves} run on the JDK
+     * Vector API; they do when the JVM is started with
+     * {@code --add-modules jdk.incubator.vector}, and use a scalar loop otherwise
+     */
+    public static boolean isVectorized() {
+        return VECTOR_API && NoiseVectorKernel.LANES > 1;
+    }
+
     /**
      * Noise is responsible to generate pseudo random noise according to the seed given upon constructing
      * the object.
@@ -86,6 +116,127 @@ public class NoiseGenerator {
         return value * factor / startPoint;
     }
 
+    /**
+     * Evaluates {@link #noise(double, double)} for {@code count} evenly spaced x positions
+     * at once, such as every column of a chunk, writing exactly the values the scalar
+     * method returns.
+     * <p>
+     * The terrain only samples the noise along the x axis. With an integral seed the y and
+     * z fractions are then zero and their terms vanish: each octave reduces to a blend of
+     * the x coefficients of two cell gradients, precomputed per seed. (A fractional seed
+     * falls back to the scalar method.) The batch runs octave by octave over plain arrays;
+     * with the Vector API available (see {@link #isVectorized()}) each step evaluates a
+     * whole vector of positions, otherwise one position. Only tables are read, so batches
+     * may be evaluated from several threads at once.
+     *
+     * @param firstX the first x position
+     * @param stepX  the distance between consecutive positions
+     * @param count  the number of positions
+     * @param factor as for {@link #noise(double, double)}
+     * @param out    receives the noise of position i at index i; at least {@code count} long
+     */
+    public void noiseBatch(double firstX, double stepX, int count, double factor, double[] out) {
+        for (int i = 0; i < count; i++) {
+            out[i] = 0.0;
+        }
+        accumulateOctaves(firstX, stepX, count, 0, octaveCount(), out);
+        scaleSums(out, count, factor, out);
+    }
+
+    /**
+     * Returns the number of octaves {@link #noise(double, double)} sums, from the coarsest
+     * (period {@code startPoint}) to the finest (period 1). Each octave has half the
+     * amplitude of the previous one, so the first few already give the overall shape.
+     *
+     * @return the number of octaves
+     */
+    public int octaveCount() {
+        int octaves = 0;
+        for (double currentPoint = startPoint; currentPoint >= 1; currentPoint /= 2.0) {
+            octaves++;
+        }
+        return octaves;
+    }
+
+    /**
+     * Adds octaves {@code [fromOctave, toOctave)} of evenly spaced x positions to running,
+     * unscaled sums, as a batch (see {@link #noiseBatch}).
+     * <p>
+     * Sums start at 0. Adding the octaves of a position in consecutive ranges, in any number
+     * of steps, yields exactly the sum {@link #noise(double, double)} builds; scaled by
+     * {@link #scaleSums}, a partial sum is a coarse level of detail of the noise and a sum of
+     * all {@link #octaveCount()} octaves is the exact noise.
+     *
+     * @param firstX     the first x position
+     * @param stepX      the distance between consecutive positions
+     * @param count      the number of positions
+     * @param fromOctave the first octave to add, 0 being the coarsest
+     * @param toOctave   the octave after the last one to add, at most {@link #octaveCount()}
+     * @param sums       the running sums of position i at index i; at least {@code count} long
+     */
+    public void accumulateOctaves(double firstX, double stepX, int count,
+                                  int fromOctave, int toOctave, double[] sums) {
+        double currentPoint = startPoint;
+        for (int octave = 0; octave < fromOctave; octave++) {
+            currentPoint /= 2.0;
+        }
+
+        if (gradientX == null) {
+            for (int octave = fromOctave; octave < toOctave; octave++) {
+                for (int i = 0; i < count; i++) {
+                    double x = (firstX + i * stepX) / currentPoint;
+                    sums[i] += smoothNoise(x, 0, 0) * currentPoint;
+                }
+                currentPoint /= 2.0;
+            }
+            return;
+        }
+
+        if (isVectorized()) {
+            NoiseVectorKernel.accumulate(firstX, stepX, count, toOctave - fromOctave,
+                    currentPoint, seed, gradientX, sums);
+            return;
+        }
+        for (int octave = fromOctave; octave < toOctave; octave++) {
+            for (int i = 0; i < count; i++) {
+                sums[i] += octaveOf(firstX + i * stepX, currentPoint, seed, gradientX);
+            }
+            currentPoint /= 2.0;
+        }
+    }
+
+    /**
+     * One octave of a position for an integral seed: smoothNoise(position / currentPoint,
+     * 0, 0) * currentPoint, by the same operations in the same order.
+     */
+    static double octaveOf(double position, double currentPoint, double seed,
+                           double[] gradientX) {
+        double x = position / currentPoint;
+        x += seed;
+        x += seed;
+        double floor = Math.floor(x);
+        int X = (int) floor & 255;
+        x -= floor;
+        double u = fade(x);
+        double a = gradientX[X] * x;
+        double b = gradientX[X + 1] * (x - 1);
+        return (a + u * (b - a)) * currentPoint;
+    }
+
+    /**
+     * Turns sums built by {@link #accumulateOctaves} into noise values.
+     *
+     * @param sums   the running sums
+     * @param count  the number of sums
+     * @param factor as for {@link #noise(double, double)}
+     * @param out    receives the noise values; may be {@code sums} itself
+     */
+    public void scaleSums(double[] sums, int count, double factor, double[] out) {
+        for (int i = 0; i < count; i++) {
+            out[i] = sums[i] * factor / startPoint;
+        }
+    }
+
 
     private double smoothNoise(double x, double y, double z) {
         // Offset each coordinate by the seed value
@@ -122,7 +273,7 @@ public class NoiseGenerator {
                                 grad(p[BB + 1], x - 1, y - 1, z - 1))));
     }
 
-    private double fade(double t) {
+    private static double fade(double t) {
         return t * t * t * (t * (t * 6 - 15) + 10);
     }
 
@@ -0,0 +1,87 @@
+package pepse.utils;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The octave loop of {@link NoiseGenerator#accumulateOctaves} on the JDK Vector API,
+ * evaluating as many positions per instruction as the CPU's preferred vector holds.
+ * <p>
+ * The Vector API is an incubator module: this class is only loaded when the JVM was
+ * started with {@code --add-modules jdk.incubator.vector}, otherwise the generator keeps
+ * to its scalar loop. Every lane performs the scalar loop's operations in the same order,
+ * so both produce identical values. The floor is taken in double lanes, by rounding
+ * through {@value #ROUNDING_BIAS} and stepping down where that rounded up; converting
+ * lanes to int changes the vector shape, which JDK 17 does not compile to vector code and
+ * pays for with an allocation per conversion. The cell indices are read from the floors
+ * lane by lane and the gradients gathered from the generator's per-seed table.
+ */
+final class NoiseVectorKernel {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    /** Positions evaluated per vector; below 2 the kernel gains nothing and is not used */
+    static final int LANES = DOUBLES.length();
+
+    // 1.5 * 2^52: adding it leaves no fraction bits, so it rounds to an integer
+    private static final double ROUNDING_BIAS = 6755399441055744.0;
+    private static final DoubleVector LANE_INDICES = DoubleVector.zero(DOUBLES).addIndex(1);
+    private static final int CELL_MASK = 255;
+
+    // floors and gather indices; batches may run on several threads at once
+    private static final ThreadLocal<double[]> FLOORS =
+            ThreadLocal.withInitial(() -> new double[LANES]);
+    private static final ThreadLocal<int[]> CELLS = ThreadLocal.withInitial(() -> new int[LANES]);
+
+    private NoiseVectorKernel() {}
+
+    /**
+     * Adds octaves to running sums, as the integral-seed loop of
+     * {@link NoiseGenerator#accumulateOctaves} does.
+     *
+     * @param firstX       the first x position
+     * @param stepX        the distance between consecutive positions
+     * @param count        the number of positions
+     * @param octaves      the number of octaves to add
+     * @param currentPoint the period of the first octave to add
+     * @param seed         the generator's seed
+     * @param gradients    the x coefficient of the gradient at each cell, 257 entries
+     * @param sums         the running sums of position i at index i
+     */
+    static void accumulate(double firstX, double stepX, int count, int octaves,
+                           double currentPoint, double seed, double[] gradients, double[] sums) {
+        double[] floors = FLOORS.get();
+        int[] cells = CELLS.get();
+        int vectorEnd = DOUBLES.loopBound(count);
+        for (int octave = 0; octave < octaves; octave++) {
+            int i = 0;
+            for (; i < vectorEnd; i += LANES) {
+                DoubleVector x = LANE_INDICES.add(i).mul(stepX).add(firstX).div(currentPoint)
+                        .add(seed).add(seed);
+                DoubleVector floor = x.add(ROUNDING_BIAS).sub(ROUNDING_BIAS);
+                VectorMask<Double> roundedUp = floor.compare(VectorOperators.GT, x);
+                floor = floor.sub(1.0, roundedUp);
+                floor.intoArray(floors, 0);
+                for (int lane = 0; lane < LANES; lane++) {
+                    cells[lane] = (int) floors[lane] & CELL_MASK;
+                }
+
+                x = x.sub(floor);
+                DoubleVector u = x.mul(x).mul(x).mul(x.mul(x.mul(6).sub(15)).add(10));
+                DoubleVector a = DoubleVector.fromArray(DOUBLES, gradients, 0, cells, 0).mul(x);
+                DoubleVector b =
+                        DoubleVector.fromArray(DOUBLES, gradients, 1, cells, 0).mul(x.sub(1));
+                DoubleVector.fromArray(DOUBLES, sums, i)
+                        .add(a.add(u.mul(b.sub(a))).mul(currentPoint))
+                        .intoArray(sums, i);
+            }
+            for (; i < count; i++) {
+                sums[i] += NoiseGenerator.octaveOf(
+                        firstX + i * stepX, currentPoint, seed, gradients);
+            }
+            currentPoint /= 2.0;
+        }
+    }
+}
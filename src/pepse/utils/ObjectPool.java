@@ -0,0 +1,52 @@
+package pepse.utils;
+
+import java.util.ArrayDeque;
+import java.util.function.Supplier;
+
+/**
+ * A simple free-list of reusable objects.
+ * <p>
+ * Objects are created by the given factory only when the pool is empty; released objects
+ * are handed out again by later {@link #acquire()} calls. The pool does not reset objects
+ * itself - callers are expected to reinitialize an acquired object before using it.
+ *
+ * @param <T> the type of pooled objects
+ */
+public class ObjectPool<T> {
+
+    private final ArrayDeque<T> free = new ArrayDeque<>();
+    private final Supplier<T> factory;
+
+    /**
+     * Constructs an empty pool.
+     *
+     * @param factory creates a new object when no released one is available
+     */
+    public ObjectPool(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Returns a released object if one is available, or a newly created one otherwise.
+     *
+     * @return an object that is not in use
+     */
+    public T acquire() {
+        T value = free.pollLast();
+        return value != null ? value : factory.get();
+    }
+
+    /**
+     * Returns an object to the pool. The object must not be used by the caller afterwards.
+     *
+     * @param value the object to recycle
+     */
+    public void release(T value) {
+        free.addLast(value);
+    }
+
+    /** @return the number of released objects waiting to be reused */
+    public int available() {
+        return free.size();
+    }
+}
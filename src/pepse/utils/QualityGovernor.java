@@ -0,0 +1,110 @@
+package pepse.utils;
+
+import java.util.Arrays;
+
+/**
+ * Chooses a quality level from recent frame times.
+ * <p>
+ * Levels are numbered from 0, the highest quality. The governor keeps the last
+ * {@value #WINDOW_FRAMES} frame times and every {@value #EVALUATION_INTERVAL} frames looks at
+ * their 95th percentile: above the target frame time by {@value #DOWNGRADE_FACTOR}x it
+ * lowers the quality one level, and after a run of evaluations within
+ * {@value #UPGRADE_FACTOR}x of the target it raises it one level.
+ * <p>
+ * Frame times are capped by the frame rate, so a level cannot show that a better one would
+ * fit; raising the quality is a trial. Hysteresis keeps the level from oscillating: the
+ * window is refilled after every change before it is judged again, raising needs a longer
+ * good run than lowering needs bad frames, and each time a raised level has to be left
+ * at its first evaluation the run needed to return to it doubles, up to
+ * {@value #MAX_UPGRADE_RUN} evaluations.
+ */
+public class QualityGovernor {
+
+    private static final int WINDOW_FRAMES = 120;
+    private static final int EVALUATION_INTERVAL = 30;
+    private static final float PERCENTILE = 0.95f;
+    private static final float DOWNGRADE_FACTOR = 1.2f;
+    private static final float UPGRADE_FACTOR = 1.05f;
+    private static final int MIN_UPGRADE_RUN = 8;
+    private static final int MAX_UPGRADE_RUN = 128;
+
+    private final float targetFrameTime;
+    private final int maxLevel;
+    private final int[] upgradeRuns;    // good evaluations needed to enter each level
+    private final float[] frameTimes = new float[WINDOW_FRAMES];
+    private final float[] sorted = new float[WINDOW_FRAMES];
+    private int frames;                 // since the last change, up to WINDOW_FRAMES
+    private int next;
+    private int goodRun;
+    private int level;
+    private int raisedFrom = -1;        // the level left by the last raise, until judged
+    private float percentile;
+
+    /**
+     * Constructs a governor.
+     *
+     * @param targetFrameRate the frame rate to keep, in frames per second
+     * @param levelCount      the number of quality levels
+     * @param startLevel      the level to start at
+     */
+    public QualityGovernor(int targetFrameRate, int levelCount, int startLevel) {
+        this.targetFrameTime = 1f / targetFrameRate;
+        this.maxLevel = levelCount - 1;
+        this.level = startLevel;
+        this.upgradeRuns = new int[levelCount];
+        Arrays.fill(upgradeRuns, MIN_UPGRADE_RUN);
+    }
+
+    /**
+     * Adds a frame's time and re-evaluates the level when due.
+     *
+     * @param deltaTime the frame's time, in seconds
+     * @return whether the level changed
+     */
+    public boolean frame(float deltaTime) {
+        frameTimes[next] = deltaTime;
+        next = (next + 1) % WINDOW_FRAMES;
+        if (frames < WINDOW_FRAMES) frames++;
+        if (frames < WINDOW_FRAMES || next % EVALUATION_INTERVAL != 0) return false;
+
+        System.arraycopy(frameTimes, 0, sorted, 0, WINDOW_FRAMES);
+        Arrays.sort(sorted);
+        percentile = sorted[(int) (PERCENTILE * (WINDOW_FRAMES - 1))];
+
+        if (percentile > targetFrameTime * DOWNGRADE_FACTOR && level < maxLevel) {
+            if (raisedFrom == level + 1) {
+                // the raise did not hold; be slower to try it again
+                upgradeRuns[level] = Math.min(MAX_UPGRADE_RUN, upgradeRuns[level] * 2);
+            }
+            raisedFrom = -1;
+            return change(level + 1);
+        }
+        raisedFrom = -1;
+        if (percentile <= targetFrameTime * UPGRADE_FACTOR && level > 0) {
+            if (++goodRun >= upgradeRuns[level - 1]) {
+                raisedFrom = level;
+                return change(level - 1);
+            }
+        } else {
+            goodRun = 0;
+        }
+        return false;
+    }
+
+    /** @return the current level, 0 being the highest quality */
+    public int level() {
+        return level;
+    }
+
+    /** @return the frame-time percentile of the last evaluation, in seconds */
+    public float percentile() {
+        return percentile;
+    }
+
+    private boolean change(int newLevel) {
+        level = newLevel;
+        frames = 0;
+        goodRun = 0;
+        return true;
+    }
+}
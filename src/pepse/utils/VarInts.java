@@ -0,0 +1,72 @@
+package pepse.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Variable-length integer encoding for the game's compact binary streams.
+ * <p>
+ * Unsigned values are written 7 bits per byte, least significant group first, with the
+ * high bit of each byte marking that more bytes follow. Signed values are zigzag-mapped
+ * first (0, -1, 1, -2, ... become 0, 1, 2, 3, ...) so that small deltas of either sign
+ * stay short.
+ */
+public final class VarInts {
+
+    private static final int PAYLOAD_BITS = 7;
+    private static final int PAYLOAD_MASK = 0x7F;
+    private static final int CONTINUE = 0x80;
+    private static final int SIGN_SHIFT = 31;
+
+    private VarInts() {}
+
+    /**
+     * @param out   the stream to write to
+     * @param value the value, treated as unsigned
+     * @throws IOException if writing fails
+     */
+    public static void writeUnsigned(DataOutput out, int value) throws IOException {
+        while ((value & ~PAYLOAD_MASK) != 0) {
+            out.writeByte((value & PAYLOAD_MASK) | CONTINUE);
+            value >>>= PAYLOAD_BITS;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * @param in the stream to read from
+     * @return the value written by {@link #writeUnsigned}
+     * @throws IOException if reading fails
+     */
+    public static int readUnsigned(DataInput in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & PAYLOAD_MASK) << shift;
+            shift += PAYLOAD_BITS;
+        } while ((b & CONTINUE) != 0);
+        return value;
+    }
+
+    /**
+     * @param out   the stream to write to
+     * @param value the value, short when close to zero
+     * @throws IOException if writing fails
+     */
+    public static void writeSigned(DataOutput out, int value) throws IOException {
+        writeUnsigned(out, (value << 1) ^ (value >> SIGN_SHIFT));
+    }
+
+    /**
+     * @param in the stream to read from
+     * @return the value written by {@link #writeSigned}
+     * @throws IOException if reading fails
+     */
+    public static int readSigned(DataInput in) throws IOException {
+        int zigzag = readUnsigned(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
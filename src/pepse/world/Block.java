@@ -14,12 +14,15 @@ import danogl.util.Vector2;
  *   <li>Do not move or respond to forces</li>
  *   <li>Prevent other objects from intersecting them</li>
  * </ul>
+ * Blocks of released chunks are recycled through {@link #reset}.
  */
 public class Block extends GameObject {
 
     /** Width and height of a single block in pixels */
     public static final int SIZE = 30;
 
+    private final String defaultTag;
+
     /**
      * Constructs a new {@code Block}.
      *
@@ -28,9 +31,21 @@ public class Block extends GameObject {
      */
     public Block(Vector2 topLeftCorner, Renderable renderable) {
         super(topLeftCorner, Vector2.ONES.mult(SIZE), renderable);
+        this.defaultTag = getTag();
 
         physics().preventIntersectionsFromDirection(Vector2.ZERO);
         physics().setMass(GameObjectPhysics.IMMOVABLE_MASS);
     }
-}
 
+    /**
+     * Reinitializes a recycled block as if it was newly constructed.
+     *
+     * @param topLeftCorner the new top-left position of the block
+     * @param renderable the new visual representation of the block
+     */
+    public void reset(Vector2 topLeftCorner, Renderable renderable) {
+        setTopLeftCorner(topLeftCorner);
+        renderer().setRenderable(renderable);
+        setTag(defaultTag);
+    }
+}
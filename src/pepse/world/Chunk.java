@@ -1,5 +1,6 @@
 package pepse.world;
 
+import pepse.world.trees.FruitState;
 import pepse.world.trees.Tree;
 
 import java.util.ArrayList;
@@ -12,22 +13,60 @@ import java.util.ArrayList;
  *     <li>Blocks: static terrain pieces</li>
  *     <li>Trees: trees present in this chunk</li>
  * </ul>
+ * Terrain is generated lazily from the surface downwards, so a chunk also remembers
+ * how deep its blocks currently reach, and keeps a bounding box used for viewport culling.
  * This class is useful for managing and generating sections of the world efficiently.
  */
 public class Chunk {
 
+    private final int minX;
+    private final int maxX;
     private final ArrayList<Block> blocks;
     private final ArrayList<Tree> trees;
+    private int generatedBottom;
+    private final float leftX;
+    private final float rightX;
+    private final float topY;
 
     /**
      * Constructs a new {@code Chunk} with the given blocks and trees.
      *
-     * @param blocks the terrain blocks in this chunk
-     * @param trees  the trees in this chunk
+     * @param minX            minimum X-coordinate covered by the chunk (inclusive)
+     * @param maxX            maximum X-coordinate covered by the chunk (exclusive)
+     * @param blocks          the terrain blocks in this chunk
+     * @param trees           the trees in this chunk
+     * @param generatedBottom the Y-coordinate (exclusive) down to which blocks were generated
      */
-    public Chunk(ArrayList<Block> blocks, ArrayList<Tree> trees) {
+    public Chunk(int minX, int maxX, ArrayList<Block> blocks, ArrayList<Tree> trees,
+                 int generatedBottom) {
+        this.minX = minX;
+        this.maxX = maxX;
         this.blocks = blocks;
         this.trees = trees;
+        this.generatedBottom = generatedBottom;
+        this.topY = computeTopY();
+        this.leftX = computeLeftX();
+        this.rightX = computeRightX();
+    }
+
+    /** @return minimum X-coordinate covered by the chunk (inclusive) */
+    public int getMinX() {
+        return minX;
+    }
+
+    /** @return maximum X-coordinate covered by the chunk (exclusive) */
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /** @return the left edge of the chunk's bounding box, its trees included */
+    public float getLeftX() {
+        return leftX;
+    }
+
+    /** @return the right edge of the chunk's bounding box, its trees included */
+    public float getRightX() {
+        return rightX;
     }
 
     /** @return the blocks contained in this chunk */
@@ -39,4 +78,80 @@ public class Chunk {
     public ArrayList<Tree> getTrees() {
         return trees;
     }
+
+    /**
+     * Counts the fruits of the chunk's trees that are there to be eaten, from the fruit
+     * state the trees share, without looking at any fruit object.
+     *
+     * @param worldTime the world clock's time
+     * @return the number of fruits not eaten at that time
+     */
+    public int countAvailableFruits(double worldTime) {
+        return trees.isEmpty() ? 0 : getFruitState().countAvailable(worldTime);
+    }
+
+    /** @return the fruit state shared by the chunk's trees, or null if it has none */
+    public FruitState getFruitState() {
+        return trees.isEmpty() ? null : trees.get(0).getFruitState();
+    }
+
+    /** @return the Y-coordinate (exclusive) down to which terrain was generated */
+    public int getGeneratedBottom() {
+        return generatedBottom;
+    }
+
+    /**
+     * Appends a newly generated band of deeper blocks to the chunk.
+     *
+     * @param band            the blocks of the new band
+     * @param generatedBottom the new Y-coordinate (exclusive) the terrain reaches
+     */
+    public void addDepthBand(ArrayList<Block> band, int generatedBottom) {
+        blocks.addAll(band);
+        this.generatedBottom = generatedBottom;
+    }
+
+    /**
+     * Checks whether the chunk's bounding box overlaps a rectangle. The box spans the
+     * chunk's range widened by the canopies overhanging it.
+     *
+     * @param minX left edge of the rectangle
+     * @param minY top edge of the rectangle
+     * @param maxX right edge of the rectangle
+     * @param maxY bottom edge of the rectangle
+     * @return true if the chunk overlaps the rectangle
+     */
+    public boolean intersects(float minX, float minY, float maxX, float maxY) {
+        return rightX >= minX && leftX <= maxX
+                && generatedBottom >= minY && topY <= maxY;
+    }
+
+    // highest point of any block or tree; the bottom is the generated depth
+    private float computeTopY() {
+        float top = generatedBottom;
+        for (Block block : blocks) {
+            top = Math.min(top, block.getTopLeftCorner().y());
+        }
+        for (Tree tree : trees) {
+            top = Math.min(top, tree.getTopY());
+        }
+        return top;
+    }
+
+    // the chunk's range, widened by canopies overhanging its edges
+    private float computeLeftX() {
+        float left = minX;
+        for (Tree tree : trees) {
+            left = Math.min(left, tree.getLeftX());
+        }
+        return left;
+    }
+
+    private float computeRightX() {
+        float right = maxX;
+        for (Tree tree : trees) {
+            right = Math.max(right, tree.getRightX());
+        }
+        return right;
+    }
 }
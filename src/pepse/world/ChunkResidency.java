@@ -0,0 +1,259 @@
+package pepse.world;
+
+import pepse.BiListDeque;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides which chunks of the world are resident, on behalf of any number of viewers.
+ * <p>
+ * Each {@link Viewer} declares an interest window: the chunk it is in plus
+ * {@code interestRadius} chunks on either side. A chunk is reference-counted by the windows
+ * covering it - it is generated the first time any window reaches it, shared by every
+ * viewer whose window overlaps it, and disabled only when no window covers it anymore.
+ * Disabled chunks are kept for a while (a fixed number per viewer, oldest released first)
+ * so walking back and forth does not regenerate them, and are then released to the pools.
+ * The cost of the world therefore follows the area covered by the viewers, not their count.
+ * <p>
+ * The residency only does the bookkeeping; building, showing, hiding and recycling
+ * the contents of a chunk is left to a {@link ChunkLifecycle}.
+ */
+public class ChunkResidency {
+
+    /**
+     * Something whose surroundings must be present in the world,
+     * such as the avatar or an observer.
+     */
+    public interface Viewer {
+        /** @return the X-coordinate around which the viewer needs the world */
+        float viewX();
+    }
+
+    /**
+     * Builds, shows, hides and recycles the contents of chunks.
+     */
+    public interface ChunkLifecycle {
+        /**
+         * Generates a chunk and adds its contents to the game.
+         *
+         * @param chunkId the id of the chunk
+         * @return the new chunk
+         */
+        Chunk create(int chunkId);
+
+        /** @param chunk a disabled chunk whose contents should be added back to the game */
+        void enable(Chunk chunk);
+
+        /** @param chunk an enabled chunk whose contents should be removed from the game */
+        void disable(Chunk chunk);
+
+        /** @param chunk a disabled chunk whose objects should be recycled */
+        void release(Chunk chunk);
+    }
+
+    private static final class Slot {
+        private Chunk chunk;
+        private int references;
+    }
+
+    private static final class Interest {
+        private final Viewer viewer;
+        private int center;
+
+        private Interest(Viewer viewer, int center) {
+            this.viewer = viewer;
+            this.center = center;
+        }
+    }
+
+    private final int chunkWidth;
+    private int interestRadius;
+    private final int retainedPerViewer;
+    private final ChunkLifecycle lifecycle;
+
+    private final BiListDeque<Slot> slots = new BiListDeque<>();
+    private final ArrayList<Interest> interests = new ArrayList<>();
+    private final ArrayList<Chunk> active = new ArrayList<>();
+    private final ArrayDeque<Slot> retained = new ArrayDeque<>(); // disabled, oldest first
+
+    /**
+     * Constructs a residency with no viewers.
+     *
+     * @param chunkWidth        width of a chunk in pixels
+     * @param interestRadius    number of chunks each viewer needs on either side of its own
+     * @param retainedPerViewer number of disabled chunks kept, per viewer, before releasing
+     * @param lifecycle         builds, shows, hides and recycles chunk contents
+     */
+    public ChunkResidency(int chunkWidth, int interestRadius, int retainedPerViewer,
+                          ChunkLifecycle lifecycle) {
+        this.chunkWidth = chunkWidth;
+        this.interestRadius = interestRadius;
+        this.retainedPerViewer = retainedPerViewer;
+        this.lifecycle = lifecycle;
+    }
+
+    /**
+     * Registers a viewer; the chunks of its interest window become resident immediately.
+     *
+     * @param viewer the viewer to add
+     */
+    public void addViewer(Viewer viewer) {
+        Interest interest = new Interest(viewer, chunkIdAt(viewer.viewX()));
+        interests.add(interest);
+        referenceWindow(interest.center, interestRadius);
+    }
+
+    /**
+     * Unregisters a viewer; chunks no other viewer needs are disabled.
+     *
+     * @param viewer the viewer to remove
+     */
+    public void removeViewer(Viewer viewer) {
+        for (int i = 0; i < interests.size(); i++) {
+            Interest interest = interests.get(i);
+            if (interest.viewer == viewer) {
+                interests.remove(i);
+                unreferenceWindow(interest.center, interestRadius);
+                trimRetained();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Moves each viewer's interest window to the chunk the viewer is in now.
+     * Chunks entering a window are enabled (or generated) before chunks leaving it are
+     * disabled, so a chunk still covered by the new window is never touched.
+     */
+    public void update() {
+        for (int i = 0; i < interests.size(); i++) {
+            Interest interest = interests.get(i);
+            int center = chunkIdAt(interest.viewer.viewX());
+            if (center == interest.center) continue;
+
+            referenceWindow(center, interestRadius);
+            unreferenceWindow(interest.center, interestRadius);
+            interest.center = center;
+        }
+        trimRetained();
+    }
+
+    /**
+     * Makes a chunk resident without a viewer needing it, as when a saved game is resumed:
+     * a chunk that is not resident is generated and kept disabled among the retained chunks,
+     * as if a viewer had just left it. A resident chunk is left as it is.
+     *
+     * @param chunkId the id of the chunk
+     */
+    public void retain(int chunkId) {
+        Slot slot = slotAt(chunkId);
+        if (slot.chunk != null) return;
+        slot.chunk = lifecycle.create(chunkId);
+        lifecycle.disable(slot.chunk);
+        retained.addLast(slot);
+        trimRetained();
+    }
+
+    /**
+     * Widens or narrows every viewer's interest window. Chunks entering the windows are
+     * enabled (or generated) before chunks leaving them are disabled, as in {@link #update()}.
+     *
+     * @param interestRadius number of chunks each viewer needs on either side of its own
+     */
+    public void setInterestRadius(int interestRadius) {
+        int previous = this.interestRadius;
+        if (interestRadius == previous) return;
+        this.interestRadius = interestRadius;
+        for (int i = 0; i < interests.size(); i++) {
+            int center = interests.get(i).center;
+            referenceWindow(center, interestRadius);
+            unreferenceWindow(center, previous);
+        }
+        trimRetained();
+    }
+
+    /** @return the chunks currently enabled, in no particular order; must not be modified */
+    public List<Chunk> activeChunks() {
+        return active;
+    }
+
+    /**
+     * @return the chunks disabled but not released yet, oldest first; their objects and
+     * state are kept until they are enabled again or released
+     */
+    public List<Chunk> retainedChunks() {
+        ArrayList<Chunk> chunks = new ArrayList<>(retained.size());
+        for (Slot slot : retained) {
+            chunks.add(slot.chunk);
+        }
+        return chunks;
+    }
+
+    /** @return the number of registered viewers */
+    public int viewerCount() {
+        return interests.size();
+    }
+
+    /**
+     * @param x an X-coordinate in the world
+     * @return the id of the chunk containing it
+     */
+    public int chunkIdAt(float x) {
+        return Math.floorDiv((int) x, chunkWidth);
+    }
+
+    private void referenceWindow(int center, int radius) {
+        for (int id = center - radius; id <= center + radius; id++) {
+            reference(id);
+        }
+    }
+
+    private void unreferenceWindow(int center, int radius) {
+        for (int id = center - radius; id <= center + radius; id++) {
+            unreference(id);
+        }
+    }
+
+    private void reference(int chunkId) {
+        Slot slot = slotAt(chunkId);
+        if (slot.references++ > 0) return;
+
+        if (slot.chunk == null) {
+            slot.chunk = lifecycle.create(chunkId);
+        } else {
+            retained.remove(slot);
+            lifecycle.enable(slot.chunk);
+        }
+        active.add(slot.chunk);
+    }
+
+    private void unreference(int chunkId) {
+        Slot slot = slots.get(chunkId);
+        if (--slot.references > 0) return;
+
+        active.remove(slot.chunk);
+        lifecycle.disable(slot.chunk);
+        retained.addLast(slot);
+    }
+
+    // releases the oldest disabled chunks beyond what the current viewers may keep
+    private void trimRetained() {
+        int limit = retainedPerViewer * interests.size();
+        while (retained.size() > limit) {
+            Slot slot = retained.pollFirst();
+            lifecycle.release(slot.chunk);
+            slot.chunk = null;
+        }
+    }
+
+    private Slot slotAt(int chunkId) {
+        Slot slot = slots.isValidIndex(chunkId) ? slots.get(chunkId) : null;
+        if (slot == null) {
+            slot = new Slot();
+            slots.set(chunkId, slot);
+        }
+        return slot;
+    }
+}
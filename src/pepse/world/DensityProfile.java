@@ -0,0 +1,235 @@
+package pepse.world;
+
+import pepse.world.trees.Tree;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * How much the world generators put into the world: tree odds and spacing, canopy size
+ * and how densely canopies are filled with leaves and fruits, and terrain depth.
+ * <p>
+ * {@link #DEFAULT} is the world as designed. Other named profiles, from sparse to an
+ * extreme forest, are read from a properties file of {@code <profile>.<setting>=value}
+ * lines; settings a profile leaves out keep their default value. The setting names are
+ * {@value #TREE_ODDS}, {@value #TOTAL_ODDS}, {@value #MIN_TREE_GAP_BLOCKS},
+ * {@value #LEAF_DENSITY}, {@value #FRUIT_DENSITY}, {@value #CANOPY_MIN_HALF_SIZE},
+ * {@value #CANOPY_MAX_HALF_SIZE} and {@value #TERRAIN_DEPTH}.
+ * <p>
+ * The world is a function of the seed and the profile, so a profile other than the
+ * default changes every chunk.
+ */
+public final class DensityProfile {
+
+    private static final String TREE_ODDS = "treeOdds";
+    private static final String TOTAL_ODDS = "totalOdds";
+    private static final String MIN_TREE_GAP_BLOCKS = "minTreeGapBlocks";
+    private static final String LEAF_DENSITY = "leafDensity";
+    private static final String FRUIT_DENSITY = "fruitDensity";
+    private static final String CANOPY_MIN_HALF_SIZE = "canopyMinHalfSize";
+    private static final String CANOPY_MAX_HALF_SIZE = "canopyMaxHalfSize";
+    private static final String TERRAIN_DEPTH = "terrainDepth";
+    private static final char NAME_SEPARATOR = '.';
+
+    /** The world as designed: the generators' former constants. */
+    public static final DensityProfile DEFAULT =
+            new DensityProfile("default", 1, 10, 10, 0.70f, 0.10f, 100, 150, 20);
+
+    private final String name;
+    private final int treeOdds;
+    private final int totalOdds;
+    private final int minTreeGapBlocks;
+    private final float leafDensity;
+    private final float fruitDensity;
+    private final int canopyMinHalfSize;
+    private final int canopyMaxHalfSize;
+    private final int terrainDepth;
+
+    private DensityProfile(String name, int treeOdds, int totalOdds, int minTreeGapBlocks,
+                           float leafDensity, float fruitDensity, int canopyMinHalfSize,
+                           int canopyMaxHalfSize, int terrainDepth) {
+        require(totalOdds >= 1, name, TOTAL_ODDS, "must be at least 1");
+        require(treeOdds >= 0 && treeOdds <= totalOdds, name, TREE_ODDS,
+                "must be between 0 and " + TOTAL_ODDS);
+        require(minTreeGapBlocks >= 1, name, MIN_TREE_GAP_BLOCKS, "must be at least 1");
+        require(leafDensity >= 0 && leafDensity <= 1, name, LEAF_DENSITY,
+                "must be between 0 and 1");
+        require(fruitDensity >= 0 && fruitDensity <= 1, name, FRUIT_DENSITY,
+                "must be between 0 and 1");
+        require(canopyMinHalfSize >= 1, name, CANOPY_MIN_HALF_SIZE, "must be at least 1");
+        require(canopyMaxHalfSize >= canopyMinHalfSize
+                        && canopyMaxHalfSize <= Tree.MAX_CANOPY_HALF_SIZE,
+                name, CANOPY_MAX_HALF_SIZE, "must be between " + CANOPY_MIN_HALF_SIZE
+                        + " and " + Tree.MAX_CANOPY_HALF_SIZE);
+        require(terrainDepth >= 1, name, TERRAIN_DEPTH, "must be at least 1");
+        this.name = name;
+        this.treeOdds = treeOdds;
+        this.totalOdds = totalOdds;
+        this.minTreeGapBlocks = minTreeGapBlocks;
+        this.leafDensity = leafDensity;
+        this.fruitDensity = fruitDensity;
+        this.canopyMinHalfSize = canopyMinHalfSize;
+        this.canopyMaxHalfSize = canopyMaxHalfSize;
+        this.terrainDepth = terrainDepth;
+    }
+
+    /**
+     * Reads every profile of a profiles file, in the order they first appear.
+     *
+     * @param path the properties file
+     * @return the profiles by name
+     */
+    public static Map<String, DensityProfile> loadAll(String path) {
+        ArrayList<String> keys = new ArrayList<>();
+        Properties properties = new Properties() {
+            @Override
+            public synchronized Object put(Object key, Object value) {
+                keys.add((String) key); // Properties forgets the file's order
+                return super.put(key, value);
+            }
+        };
+        try (Reader reader = new FileReader(path)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read density profiles " + path, e);
+        }
+
+        Map<String, DensityProfile> profiles = new LinkedHashMap<>();
+        for (String key : keys) {
+            int separator = key.indexOf(NAME_SEPARATOR);
+            if (separator <= 0) {
+                throw new IllegalArgumentException("not a <profile>.<setting> key: " + key);
+            }
+            String name = key.substring(0, separator);
+            if (!profiles.containsKey(name)) profiles.put(name, parse(name, properties));
+        }
+        return profiles;
+    }
+
+    /**
+     * Reads one profile of a profiles file; {@code default} needs no entry in the file.
+     *
+     * @param path the properties file
+     * @param name the profile's name
+     * @return the profile
+     */
+    public static DensityProfile load(String path, String name) {
+        DensityProfile profile = loadAll(path).get(name);
+        if (profile != null) return profile;
+        if (name.equals(DEFAULT.name)) return DEFAULT;
+        throw new IllegalArgumentException("no density profile " + name + " in " + path);
+    }
+
+    /**
+     * Reads a profile written by {@link #write}.
+     *
+     * @param in the stream to read from
+     * @return the profile
+     * @throws IOException if the stream cannot be read
+     */
+    public static DensityProfile read(DataInput in) throws IOException {
+        return new DensityProfile(in.readUTF(), in.readInt(), in.readInt(), in.readInt(),
+                in.readFloat(), in.readFloat(), in.readInt(), in.readInt(), in.readInt());
+    }
+
+    /**
+     * Writes the profile so another process can generate the same world.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeUTF(name);
+        out.writeInt(treeOdds);
+        out.writeInt(totalOdds);
+        out.writeInt(minTreeGapBlocks);
+        out.writeFloat(leafDensity);
+        out.writeFloat(fruitDensity);
+        out.writeInt(canopyMinHalfSize);
+        out.writeInt(canopyMaxHalfSize);
+        out.writeInt(terrainDepth);
+    }
+
+    /** @return the profile's name */
+    public String getName() {
+        return name;
+    }
+
+    /** @return how many of {@link #getTotalOdds()} possible rolls place a tree */
+    public int getTreeOdds() {
+        return treeOdds;
+    }
+
+    /** @return the number of possible rolls for a tree at each candidate column */
+    public int getTotalOdds() {
+        return totalOdds;
+    }
+
+    /** @return the minimum distance between trees, in blocks */
+    public int getMinTreeGapBlocks() {
+        return minTreeGapBlocks;
+    }
+
+    /** @return the probability that a canopy cell holds a leaf */
+    public float getLeafDensity() {
+        return leafDensity;
+    }
+
+    /** @return the probability that a canopy cell holds a fruit */
+    public float getFruitDensity() {
+        return fruitDensity;
+    }
+
+    /** @return the smallest half-side of a canopy, in pixels */
+    public int getCanopyMinHalfSize() {
+        return canopyMinHalfSize;
+    }
+
+    /** @return the largest half-side of a canopy, in pixels */
+    public int getCanopyMaxHalfSize() {
+        return canopyMaxHalfSize;
+    }
+
+    /** @return the number of block rows below the window's bottom edge */
+    public int getTerrainDepth() {
+        return terrainDepth;
+    }
+
+    private static DensityProfile parse(String name, Properties properties) {
+        String prefix = name + NAME_SEPARATOR;
+        return new DensityProfile(name,
+                intSetting(properties, prefix + TREE_ODDS, DEFAULT.treeOdds),
+                intSetting(properties, prefix + TOTAL_ODDS, DEFAULT.totalOdds),
+                intSetting(properties, prefix + MIN_TREE_GAP_BLOCKS, DEFAULT.minTreeGapBlocks),
+                floatSetting(properties, prefix + LEAF_DENSITY, DEFAULT.leafDensity),
+                floatSetting(properties, prefix + FRUIT_DENSITY, DEFAULT.fruitDensity),
+                intSetting(properties, prefix + CANOPY_MIN_HALF_SIZE, DEFAULT.canopyMinHalfSize),
+                intSetting(properties, prefix + CANOPY_MAX_HALF_SIZE, DEFAULT.canopyMaxHalfSize),
+                intSetting(properties, prefix + TERRAIN_DEPTH, DEFAULT.terrainDepth));
+    }
+
+    private static void require(boolean valid, String name, String setting, String rule) {
+        if (!valid) {
+            throw new IllegalArgumentException(
+                    "invalid density profile: " + name + NAME_SEPARATOR + setting + " " + rule);
+        }
+    }
+
+    private static int intSetting(Properties properties, String key, int fallback) {
+        String value = properties.getProperty(key);
+        return value == null ? fallback : Integer.parseInt(value.trim());
+    }
+
+    private static float floatSetting(Properties properties, String key, float fallback) {
+        String value = properties.getProperty(key);
+        return value == null ? fallback : Float.parseFloat(value.trim());
+    }
+}
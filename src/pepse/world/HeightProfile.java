@@ -0,0 +1,36 @@
+package pepse.world;
+
+import pepse.utils.NoiseGenerator;
+
+/**
+ * The ground heights of consecutive terrain columns at a reduced level of detail.
+ * <p>
+ * A profile sums only the coarsest octaves of the terrain noise - enough for a quick
+ * survey of a wide range, as WorldExport's {@code --octaves} does. With all octaves its
+ * heights are exactly those of {@link Terrain#columnTopAt}.
+ */
+public class HeightProfile {
+
+    private final int[] tops;
+
+    HeightProfile(NoiseGenerator noiseGenerator, float baseHeight, double noiseFactor,
+                  int firstX, int columnCount, int octaves) {
+        double[] sums = new double[columnCount];
+        noiseGenerator.accumulateOctaves(firstX, Block.SIZE, columnCount, 0,
+                Math.min(octaves, noiseGenerator.octaveCount()), sums);
+        noiseGenerator.scaleSums(sums, columnCount, noiseFactor, sums);
+        this.tops = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            float height = baseHeight + (float) sums[i];
+            tops[i] = (int) (Math.floor(height / Block.SIZE) * Block.SIZE);
+        }
+    }
+
+    /**
+     * @param column a column index, from 0
+     * @return the top of the column's surface block at the profile's level of detail
+     */
+    public int columnTop(int column) {
+        return tops[column];
+    }
+}
@@ -0,0 +1,57 @@
+package pepse.world;
+
+import danogl.GameObject;
+import pepse.world.avatar.GroundProbe;
+import pepse.world.trees.Tree;
+
+import java.util.List;
+
+/**
+ * Finds the ground under a horizontal span from the terrain's snapped column heights
+ * and the trunk tops of the active chunks, so standing on the ground needs no
+ * collision bodies for the terrain surface.
+ * <p>
+ * Trunks are looked up only in the chunks whose bounding box, trees included, overlaps
+ * the span: a tree placed at the end of its chunk's range stands past it. A chunk holds
+ * a handful of trees, so this is cheaper than keeping a separate index in step with
+ * streaming.
+ */
+public class Heightfield implements GroundProbe {
+
+    private final Terrain terrain;
+    private final List<Chunk> activeChunks;
+
+    /**
+     * Constructs a heightfield over the world.
+     *
+     * @param terrain      the terrain whose column heights are the ground
+     * @param activeChunks the chunks currently enabled, whose trunks can be stood on
+     */
+    public Heightfield(Terrain terrain, List<Chunk> activeChunks) {
+        this.terrain = terrain;
+        this.activeChunks = activeChunks;
+    }
+
+    @Override
+    public float groundTopUnder(float minX, float maxX) {
+        float top = Float.POSITIVE_INFINITY;
+        int firstColumn = Math.floorDiv((int) Math.floor(minX), Block.SIZE) * Block.SIZE;
+        for (int x = firstColumn; x < maxX; x += Block.SIZE) {
+            top = Math.min(top, terrain.columnTopAt(x));
+        }
+
+        for (int i = 0; i < activeChunks.size(); i++) {
+            Chunk chunk = activeChunks.get(i);
+            if (chunk.getRightX() <= minX || chunk.getLeftX() >= maxX) continue;
+            for (Tree tree : chunk.getTrees()) {
+                GameObject trunk = tree.getTreeBase();
+                float left = trunk.getTopLeftCorner().x();
+                float right = left + trunk.getDimensions().x();
+                if (right > minX && left < maxX) {
+                    top = Math.min(top, trunk.getTopLeftCorner().y());
+                }
+            }
+        }
+        return top;
+    }
+}
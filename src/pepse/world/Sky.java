@@ -2,16 +2,17 @@ package pepse.world;
 
 import danogl.GameObject;
 import danogl.components.CoordinateSpace;
-import danogl.gui.rendering.RectangleRenderable;
 import danogl.util.Vector2;
+import pepse.world.daynight.Night;
 
 import java.awt.*;
 
 /**
- * Represents the static sky background in the game world.
+ * Represents the sky background in the game world.
  * <p>
  * The sky is a rectangle covering the entire window, rendered behind all other objects.
  * It is fixed to the camera coordinates, so it moves with the camera.
+ * Its color darkens with the night through a table precomputed per cycle phase.
  */
 public class Sky {
 
@@ -22,12 +23,13 @@ public class Sky {
      * Creates a {@link GameObject} representing the sky.
      *
      * @param windowDimensions the dimensions of the game window
+     * @param night the night cycle darkening the sky and the world
      * @return a GameObject representing the sky
      */
-    public static GameObject create(Vector2 windowDimensions) {
+    public static GameObject create(Vector2 windowDimensions, Night night) {
         GameObject sky = new GameObject(
                 Vector2.ZERO, windowDimensions,
-                new RectangleRenderable(BASIC_SKY_COLOR));
+                night.shadedRectangle(BASIC_SKY_COLOR));
 
         sky.setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
 
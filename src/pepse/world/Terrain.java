@@ -1,12 +1,18 @@
 package pepse.world;
 
-import danogl.gui.rendering.RectangleRenderable;
+import danogl.gui.rendering.Renderable;
 import danogl.util.Vector2;
 import pepse.utils.ColorSupplier;
 import pepse.utils.NoiseGenerator;
+import pepse.utils.ObjectPool;
+import pepse.world.daynight.Night;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * Responsible for procedural terrain generation (ground blocks) in the game world.
@@ -14,6 +20,9 @@ import java.util.ArrayList;
  * The Terrain class creates blocks forming the ground and uses Perlin-like noise
  * to vary the ground height naturally. It can generate blocks in a horizontal range
  * without adding them to the game world directly.
+ * <p>
+ * Blocks are drawn from a pool and share a small palette of ground renderables,
+ * so blocks of released chunks can be recycled without new allocations.
  */
 public class Terrain {
 
@@ -23,19 +32,49 @@ public class Terrain {
     private final Vector2 windowDimensions;
     private static final Color BASE_GROUND_COLOR = new Color(212, 123, 74);
     private final float groundHeightAtX0;
-    private static final int TERRAIN_DEPTH = 20;
+    private final int terrainDepth;
     private final NoiseGenerator noiseGenerator;
 
+    // ---- Recycling ----
+    private static final int GROUND_PALETTE_SIZE = 16;
+    private final Renderable[] groundPalette = new Renderable[GROUND_PALETTE_SIZE];
+    private final Random paletteRandom = new Random();
+    private final ObjectPool<Block> blockPool = new ObjectPool<>(() -> new Block(Vector2.ZERO, null));
+    private int[] rangeTops = new int[0];
+    private final ThreadLocal<double[]> noiseScratch = ThreadLocal.withInitial(() -> new double[0]);
+
+    // ---- Parallel generation ----
+    // a chunk's 27 columns take 5-8 us and waking the idle pool ~50 us, so only ranges
+    // of hundreds of microseconds per batch are split
+    private static final int PARALLEL_MIN_BATCH_COLUMNS = 2048;
+
+    /**
+     * Constructs a Terrain generator of the default density.
+     *
+     * @param windowDimensions the dimensions of the game window
+     * @param seed seed for deterministic terrain noise
+     * @param night the night cycle darkening the ground
+     */
+    public Terrain(Vector2 windowDimensions, int seed, Night night) {
+        this(windowDimensions, seed, DensityProfile.DEFAULT, night);
+    }
+
     /**
      * Constructs a Terrain generator.
      *
      * @param windowDimensions the dimensions of the game window
      * @param seed seed for deterministic terrain noise
+     * @param density the density profile, which sets the terrain depth
+     * @param night the night cycle darkening the ground
      */
-    public Terrain(Vector2 windowDimensions, int seed) {
+    public Terrain(Vector2 windowDimensions, int seed, DensityProfile density, Night night) {
         this.windowDimensions = windowDimensions;
+        this.terrainDepth = density.getTerrainDepth();
         this.groundHeightAtX0 = windowDimensions.y() * GROUND_INITIAL_Y_RATIO ;
         this.noiseGenerator = new NoiseGenerator(seed, (int)groundHeightAtX0);
+        for (int i = 0; i < GROUND_PALETTE_SIZE; i++) {
+            groundPalette[i] = night.shadedRectangle(ColorSupplier.approximateColor(BASE_GROUND_COLOR));
+        }
     }
 
     /**
@@ -50,7 +89,90 @@ public class Terrain {
     }
 
     /**
-     * Creates blocks representing the terrain in the horizontal range [minX, maxX].
+     * Returns the top of the surface block of the column containing a given x-coordinate:
+     * the ground height snapped down to the block grid.
+     *
+     * @param x the horizontal coordinate of a column
+     * @return the vertical coordinate of the column's top edge
+     */
+    public int columnTopAt(float x) {
+        return (int) (Math.floor(groundHeightAt(x) / Block.SIZE) * Block.SIZE);
+    }
+
+    /**
+     * Computes {@link #columnTopAt} for consecutive columns in one batch of noise
+     * evaluation. May be called from several threads at once.
+     *
+     * @param firstX the x-coordinate of the first column, on the block grid
+     * @param count  the number of columns
+     * @param tops   receives the top of column i at index i; at least {@code count} long
+     */
+    public void columnTopsAt(int firstX, int count, int[] tops) {
+        columnTopsAt(firstX, count, tops, 0);
+    }
+
+    // writes the tops from index offset on
+    private void columnTopsAt(int firstX, int count, int[] tops, int offset) {
+        double[] noise = noiseScratch.get();
+        if (noise.length < count) {
+            noise = new double[count];
+            noiseScratch.set(noise);
+        }
+        noiseGenerator.noiseBatch(firstX, Block.SIZE, count, NOISE_FACTOR, noise);
+        for (int i = 0; i < count; i++) {
+            float height = groundHeightAtX0 + (float) noise[i];
+            tops[offset + i] = (int) (Math.floor(height / Block.SIZE) * Block.SIZE);
+        }
+    }
+
+    // like columnTopsAt, split into batches evaluated in parallel on the common fork-join
+    // pool when the range is wide enough; batch results do not depend on the split
+    private void columnTopsInParallel(int firstX, int count, int[] tops) {
+        int batches = Math.min(ForkJoinPool.getCommonPoolParallelism(),
+                count / PARALLEL_MIN_BATCH_COLUMNS);
+        if (batches <= 1) {
+            columnTopsAt(firstX, count, tops, 0);
+            return;
+        }
+        int batchColumns = (count + batches - 1) / batches;
+        IntStream.range(0, batches).parallel().forEach(batch -> {
+            int first = batch * batchColumns;
+            int batchCount = Math.min(batchColumns, count - first);
+            if (batchCount > 0) {
+                columnTopsAt(firstX + first * Block.SIZE, batchCount, tops, first);
+            }
+        });
+    }
+
+    /**
+     * Computes the column heights of the range [minX, maxX) at a reduced level of detail,
+     * using only the coarsest octaves of the noise, e.g. for a survey of a wide range.
+     * Blocks are always created from exact heights, by {@link #createInRange}.
+     *
+     * @param minX    minimum X-coordinate (inclusive)
+     * @param maxX    maximum X-coordinate (exclusive)
+     * @param octaves the number of octaves to evaluate now; more than the noise has means all
+     * @return the profile of the range's columns
+     */
+    public HeightProfile previewRange(int minX, int maxX, int octaves) {
+        int firstX = (int) Math.floor((float) minX / Block.SIZE) * Block.SIZE;
+        int columns = Math.max(0, (maxX - firstX + Block.SIZE - 1) / Block.SIZE);
+        return new HeightProfile(
+                noiseGenerator, groundHeightAtX0, NOISE_FACTOR, firstX, columns, octaves);
+    }
+
+    /**
+     * Returns the lowest y-coordinate (exclusive) the terrain ever extends to.
+     *
+     * @return the bottom edge of the deepest terrain row
+     */
+    public int getTerrainBottom() {
+        return (int) windowDimensions.y() + terrainDepth * Block.SIZE;
+    }
+
+    /**
+     * Creates blocks representing the terrain in the horizontal range [minX, maxX],
+     * all the way down to {@link #getTerrainBottom()}.
      * The top block of each column is tagged as {@link #GROUND_SURFACE_TAG}.
      *
      * @param minX minimum X-coordinate (inclusive)
@@ -58,21 +180,43 @@ public class Terrain {
      * @return a list of blocks forming the terrain in the given range
      */
     public ArrayList<Block> createInRange(int minX, int maxX) {
+        return createInRange(minX, maxX, Integer.MIN_VALUE, getTerrainBottom());
+    }
+
+    /**
+     * Creates only the terrain blocks of the range [minX, maxX] whose rows fall inside the
+     * vertical band [minY, maxY). Columns are still filled from their surface downwards, so
+     * calling this for consecutive bands yields exactly the blocks of a single full call.
+     * A block is tagged as {@link #GROUND_SURFACE_TAG} only if it is the top of its column.
+     * The column heights of a range of thousands of columns are computed in parallel
+     * batches; the blocks are then taken from the pool in column order on the calling thread.
+     *
+     * @param minX minimum X-coordinate (inclusive)
+     * @param maxX maximum X-coordinate (exclusive)
+     * @param minY minimum Y-coordinate of the band (inclusive)
+     * @param maxY maximum Y-coordinate of the band (exclusive), clamped to the terrain bottom
+     * @return a list of blocks forming the terrain in the given range and band
+     */
+    public ArrayList<Block> createInRange(int minX, int maxX, int minY, int maxY) {
 
         ArrayList<Block> blocks = new ArrayList<>();
 
         int firstX = (int) Math.floor((float) minX / Block.SIZE) * Block.SIZE;
-        int yEnd = (int) windowDimensions.y() + TERRAIN_DEPTH * Block.SIZE;
+        int yEnd = Math.min(maxY, getTerrainBottom());
+        int bandStart = (int) Math.ceil((double) minY / Block.SIZE) * Block.SIZE;
 
-        for (int x = firstX; x < maxX; x += Block.SIZE) {
-            int yStart = (int) (Math.floor(groundHeightAt(x) / Block.SIZE) * Block.SIZE);
+        int columns = Math.max(0, (maxX - firstX + Block.SIZE - 1) / Block.SIZE);
+        if (rangeTops.length < columns) rangeTops = new int[columns];
+        columnTopsInParallel(firstX, columns, rangeTops);
 
-            for (int y = yStart; y < yEnd; y += Block.SIZE) {
+        for (int column = 0; column < columns; column++) {
+            int x = firstX + column * Block.SIZE;
+            int yStart = rangeTops[column];
 
-                RectangleRenderable rectangleRenderable =
-                        new RectangleRenderable(ColorSupplier.approximateColor(BASE_GROUND_COLOR));
+            for (int y = Math.max(yStart, bandStart); y < yEnd; y += Block.SIZE) {
 
-                Block block = new Block(new Vector2(x, y), rectangleRenderable);
+                Block block = blockPool.acquire();
+                block.reset(new Vector2(x, y), groundPalette[paletteRandom.nextInt(GROUND_PALETTE_SIZE)]);
                 if (y == yStart) block.setTag(GROUND_SURFACE_TAG);
                 blocks.add(block);
             }
@@ -80,4 +224,15 @@ public class Terrain {
         return blocks;
     }
 
+    /**
+     * Returns blocks of a released chunk to the pool. The blocks must already be
+     * removed from the game.
+     *
+     * @param blocks the blocks to recycle
+     */
+    public void releaseBlocks(List<Block> blocks) {
+        for (Block block : blocks) {
+            blockPool.release(block);
+        }
+    }
 }
@@ -0,0 +1,34 @@
+package pepse.world;
+
+/**
+ * A viewer without a body that walks through the world at a constant speed.
+ * <p>
+ * Observers keep their surroundings resident exactly like the avatar does, which makes
+ * them useful for soak-testing chunk streaming with several viewers in one world.
+ */
+public class WalkingObserver implements ChunkResidency.Viewer {
+
+    private final float speedPerTick;
+    private float x;
+
+    /**
+     * Constructs an observer.
+     *
+     * @param startX       the X-coordinate the observer starts at
+     * @param speedPerTick pixels walked per simulation tick; negative walks left
+     */
+    public WalkingObserver(float startX, float speedPerTick) {
+        this.x = startX;
+        this.speedPerTick = speedPerTick;
+    }
+
+    /** Walks for one simulation tick. */
+    public void tick() {
+        x += speedPerTick;
+    }
+
+    @Override
+    public float viewX() {
+        return x;
+    }
+}
@@ -0,0 +1,89 @@
+package pepse.world;
+
+/**
+ * The single source of time for every time-dependent effect in the world.
+ * <p>
+ * The game manager advances the clock by each simulation tick and counts the frames it
+ * renders, so world time is simulated time. Effects such as the day-night cycle,
+ * the sun's orbit, leaf wind animations and fruit respawns do not run timers of their
+ * own; they derive their phase from the clock whenever they need it. As a result an
+ * effect costs nothing while its object is out of the game (for example in an inactive
+ * chunk), and it resumes in phase with the rest of the world when it comes back.
+ * <p>
+ * The clock can be scaled globally, which affects all effects at once.
+ */
+public class WorldClock {
+
+    /** Length (in seconds) of a day: noon to midnight, and of a fruit's respawn time */
+    public static final float DAY_CYCLE_LENGTH = 30f;
+
+    private static final float DEFAULT_TIME_SCALE = 1f;
+
+    private double time;
+    private long frame;
+    private float timeScale = DEFAULT_TIME_SCALE;
+
+    /** Counts a frame without advancing world time, for a clock advanced by ticks. */
+    public void nextFrame() {
+        frame++;
+    }
+
+    /**
+     * Advances world time without counting a frame, such as by one simulation tick.
+     *
+     * @param deltaTime real time simulated, in seconds
+     */
+    public void advance(float deltaTime) {
+        time += deltaTime * timeScale;
+    }
+
+    /**
+     * Advances by one frame to the given world time, for a clock that mirrors another one
+     * (such as a spectator's copy of the game's clock) rather than measuring time itself.
+     *
+     * @param worldTime the world time of the mirrored clock, in seconds
+     */
+    public void tickTo(double worldTime) {
+        frame++;
+        time = worldTime;
+    }
+
+    /** @return seconds of world time elapsed since the clock was created */
+    public double time() {
+        return time;
+    }
+
+    /** @return the number of frames so far */
+    public long frame() {
+        return frame;
+    }
+
+    /**
+     * Returns the position of the current time within a repeating period.
+     *
+     * @param offset seconds added to the current time, e.g. a per-object phase shift
+     * @param period length of the period in seconds
+     * @return a value in [0, period)
+     */
+    public float phase(double offset, float period) {
+        double phase = (time + offset) % period;
+        return (float) (phase < 0 ? phase + period : phase);
+    }
+
+    /**
+     * Sets the speed of world time relative to real time.
+     *
+     * @param timeScale 1 for real time, 0.5 for half speed, etc. Must not be negative
+     */
+    public void setTimeScale(float timeScale) {
+        if (timeScale < 0) {
+            throw new IllegalArgumentException("time scale must not be negative: " + timeScale);
+        }
+        this.timeScale = timeScale;
+    }
+
+    /** @return the speed of world time relative to real time */
+    public float getTimeScale() {
+        return timeScale;
+    }
+}
@@ -2,11 +2,13 @@ package pepse.world.avatar;
 
 import danogl.GameObject;
 import danogl.collisions.Collision;
-import danogl.gui.ImageReader;
-import danogl.gui.UserInputListener;
 import danogl.gui.rendering.AnimationRenderable;
+import danogl.gui.rendering.Renderable;
 import danogl.util.Vector2;
+import pepse.metrics.AvatarStateEvent;
+import pepse.utils.ImageCache;
 import pepse.world.Block;
+import pepse.world.daynight.Night;
 import pepse.world.trees.Fruit;
 
 import java.awt.event.KeyEvent;
@@ -15,8 +17,15 @@ import java.awt.event.KeyEvent;
  * Represents the player-controlled avatar in the game.
  * <p>
  * The avatar supports horizontal movement, jumping (including mid-air jumps),
- * collision-based ground detection, energy consumption and recovery,
+ * collision-based ground detection (or, with a {@link GroundProbe}, heightfield-based
+ * grounding), energy consumption and recovery,
  * fruit collection, and animated rendering based on movement state.
+ * <p>
+ * The avatar is simulated in fixed-length ticks driven by the game manager: input,
+ * movement decisions and energy in {@link #tick()}, then position integration,
+ * collisions and animation in {@link #update(float)} with the same tick length. Energy
+ * and distance therefore do not depend on the frame rate; the manager draws the avatar
+ * between its last two tick positions.
  */
 public class Avatar extends GameObject {
 
@@ -53,58 +62,50 @@ public class Avatar extends GameObject {
     public static final String FRUIT_TAG = "fruit";
 
     // --- Members ---
-    private final UserInputListener inputListener;
+    private final KeyStateSource inputListener;
     private int energy;
+    private EnergyListener energyListener;
     private final AnimationRenderable standingAnimation;
     private final AnimationRenderable runningAnimation;
     private final AnimationRenderable jumpingAnimation;
 
     private State curruntState;
+    private float lastXVel;
+    private boolean facingLeft;
 
     // Ground handling:
     private boolean onGround;
     private int groundContacts = 0; // robust vs corners / seams
+    private GroundProbe groundProbe;  // null: grounded by collision contacts
 
     // --- Collision / State Thresholds ---
     private static final float STATE_VELOCITY_EPS = 1f;
     private static final float GROUND_NORMAL_THRESHOLD = -0.5f;
+    private static final float GROUND_SNAP_DISTANCE = 1f;
 
     /**
      * Enum representing the possible movement states of the avatar.
      */
-    private enum State {IDLE, RUNNING, JUMPING}
+    public enum State {IDLE, RUNNING, JUMPING}
 
     /**
      * Constructs a new Avatar instance.
      *
      * @param topLeftCorner initial position of the avatar
-     * @param inputListener input listener for keyboard events
-     * @param imageReader image reader used to load animation frames
+     * @param inputListener source of keyboard state, live or replayed
+     * @param images        image cache used to load animation frames
+     * @param night         the night cycle darkening the animation frames
      */
     public Avatar(Vector2 topLeftCorner,
-                  UserInputListener inputListener,
-                  ImageReader imageReader) {
-
-        super(topLeftCorner, AVATAR_DIMENSIONS,
-                new AnimationRenderable(STANDING_IMGS, imageReader, false, FRAME_DURATION));
-
-        this.standingAnimation = new AnimationRenderable(
-                STANDING_IMGS,
-                imageReader,
-                false,
-                FRAME_DURATION);
-
-        this.runningAnimation = new AnimationRenderable(
-                RUNNING_IMGS,
-                imageReader,
-                false,
-                FRAME_DURATION);
-
-        this.jumpingAnimation = new AnimationRenderable(
-                JUMPING_IMGS,
-                imageReader,
-                false,
-                FRAME_DURATION);
+                  KeyStateSource inputListener,
+                  ImageCache images,
+                  Night night) {
+
+        super(topLeftCorner, AVATAR_DIMENSIONS, createAnimation(State.IDLE, images, night));
+
+        this.standingAnimation = createAnimation(State.IDLE, images, night);
+        this.runningAnimation = createAnimation(State.RUNNING, images, night);
+        this.jumpingAnimation = createAnimation(State.JUMPING, images, night);
 
         this.curruntState = State.IDLE;
         this.energy = MAX_ENERGY;
@@ -119,18 +120,28 @@ public class Avatar extends GameObject {
     }
 
     /**
-     * Updates the avatar every frame.
+     * Updates the avatar every simulation tick, after {@link #tick()}: moves it along its
+     * velocity and synchronizes the animation with the latest simulated movement.
      *
-     * @param deltaTime time elapsed since the last frame
+     * @param deltaTime the length of the tick
      */
     @Override
     public void update(float deltaTime) {
+        float previousX = getTopLeftCorner().x();
         super.update(deltaTime);
+        if (groundProbe != null) followGround(previousX);
+        updateState(lastXVel);
+    }
 
+    /**
+     * Runs one fixed-length simulation tick: polls input, sets the velocity,
+     * and spends or recovers energy.
+     */
+    public void tick() {
         float xVel = handleHorizontalMovement();
         handleJump();
         handleEnergyRecovery(xVel);
-        updateState(xVel);
+        lastXVel = xVel;
     }
 
     /**
@@ -146,12 +157,12 @@ public class Avatar extends GameObject {
         // Fruit
         if (FRUIT_TAG.equals(other.getTag())) {
             ((Fruit) other).disappear(); // safe casting per your design
-            energy = Math.min(MAX_ENERGY, energy + ENERGY_FRUIT_BONUS);
+            setEnergy(Math.min(MAX_ENERGY, energy + ENERGY_FRUIT_BONUS));
             return;
         }
 
         // Ground: ONLY count as ground when we land on top (prevents corner bugs)
-        if (isGround(other) && isLandingOnGround(collision)) {
+        if (groundProbe == null && isGround(other) && isLandingOnGround(collision)) {
             groundContacts++;
             onGround = true;
 
@@ -171,12 +182,23 @@ public class Avatar extends GameObject {
     public void onCollisionExit(GameObject other) {
         super.onCollisionExit(other);
 
-        if (isGround(other)) {
+        if (groundProbe == null && isGround(other)) {
             groundContacts = Math.max(0, groundContacts - 1);
             onGround = groundContacts > 0;
         }
     }
 
+    /**
+     * Makes the avatar stand on the ground reported by a probe instead of counting
+     * collisions with ground objects, so the ground need not collide with it.
+     *
+     * @param groundProbe the probe, or null to go back to collision contacts
+     */
+    public void setGroundProbe(GroundProbe groundProbe) {
+        this.groundProbe = groundProbe;
+        this.groundContacts = 0;
+    }
+
     /**
      * Returns the avatar's current energy level.
      *
@@ -186,8 +208,84 @@ public class Avatar extends GameObject {
         return energy;
     }
 
+    /** @return the avatar's current movement state, which selects its animation */
+    public State getState() {
+        return curruntState;
+    }
+
+    /** @return whether the avatar is drawn facing left */
+    public boolean isFacingLeft() {
+        return facingLeft;
+    }
+
+    /**
+     * Puts the avatar back in a saved state. Its position is set when it is constructed;
+     * whether it stands on the ground is found again by the next collisions or probe.
+     *
+     * @param velocity   the saved velocity
+     * @param energy     the saved energy level
+     * @param state      the saved movement state
+     * @param facingLeft whether the avatar faced left
+     */
+    public void restore(Vector2 velocity, int energy, State state, boolean facingLeft) {
+        setVelocity(velocity);
+        lastXVel = velocity.x();
+        setEnergy(Math.max(0, Math.min(MAX_ENERGY, energy)));
+        this.facingLeft = facingLeft;
+        renderer().setIsFlippedHorizontally(facingLeft);
+        curruntState = state;
+        switch (state) {
+            case IDLE -> renderer().setRenderable(standingAnimation);
+            case RUNNING -> renderer().setRenderable(runningAnimation);
+            case JUMPING -> renderer().setRenderable(jumpingAnimation);
+        }
+    }
+
+    /**
+     * Creates the animation shown while the avatar is in the given state.
+     *
+     * @param state       the movement state
+     * @param images image cache used to load animation frames
+     * @param night  the night cycle darkening the frames along with the world
+     * @return a new animation of the state's frames
+     */
+    public static AnimationRenderable createAnimation(State state, ImageCache images,
+                                                      Night night) {
+        String[] frames = switch (state) {
+            case IDLE -> STANDING_IMGS;
+            case RUNNING -> RUNNING_IMGS;
+            case JUMPING -> JUMPING_IMGS;
+        };
+        Renderable[] clips = new Renderable[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            clips[i] = night.shadedImage(images.readImage(frames[i]));
+        }
+        return new AnimationRenderable(clips, FRAME_DURATION);
+    }
+
+    /**
+     * Sets the listener notified whenever the energy level changes.
+     * The listener is immediately told the current level.
+     *
+     * @param energyListener the listener, or null for none
+     */
+    public void setEnergyListener(EnergyListener energyListener) {
+        this.energyListener = energyListener;
+        if (energyListener != null) {
+            energyListener.onEnergyChanged(energy);
+        }
+    }
+
     // --- Private Helper Methods ---
 
+    private void setEnergy(int newEnergy) {
+        if (newEnergy == energy) return;
+        energy = newEnergy;
+        if (energyListener != null) {
+            energyListener.onEnergyChanged(energy);
+        }
+    }
+
     private boolean isGround(GameObject other) {
         return other instanceof Block
                 || SURFACE_TAG.equals(other.getTag());
@@ -199,6 +297,39 @@ public class Avatar extends GameObject {
         return collision.getNormal().y() < GROUND_NORMAL_THRESHOLD;
     }
 
+    /**
+     * Grounds the avatar on the probe's ground after it moved this frame. Ground that
+     * rose under the avatar because it moved sideways is a wall, as a collider's side
+     * would be, so that move is undone; otherwise a falling or resting avatar that
+     * reached the ground is placed on top of it.
+     */
+    private void followGround(float previousX) {
+        Vector2 topLeft = getTopLeftCorner();
+        float width = AVATAR_DIMENSIONS.x();
+        float bottom = topLeft.y() + AVATAR_DIMENSIONS.y();
+        float top = groundProbe.groundTopUnder(topLeft.x(), topLeft.x() + width);
+
+        if (bottom > top && topLeft.x() != previousX) {
+            float previousTop = groundProbe.groundTopUnder(previousX, previousX + width);
+            if (previousTop > top) {
+                transform().setTopLeftCorner(previousX, topLeft.y());
+                transform().setVelocityX(0);
+                top = previousTop;
+            }
+        }
+
+        if (getVelocity().y() >= 0 && bottom >= top - GROUND_SNAP_DISTANCE) {
+            // a resting avatar is already on the ground; only a landing moves it
+            if (bottom != top) {
+                transform().setTopLeftCorner(getTopLeftCorner().x(), top - AVATAR_DIMENSIONS.y());
+            }
+            transform().setVelocityY(0);
+            onGround = true;
+        } else {
+            onGround = false;
+        }
+    }
+
     /**
      * Calculates horizontal velocity based on input and manages energy loss for running.
      * Allows movement in the air even without energy.
@@ -215,7 +346,7 @@ public class Avatar extends GameObject {
 
                 // Decrease energy only when moving on the ground
                 if (onGround) {
-                    energy -= ENERGY_LOSS_RUN;
+                    setEnergy(energy - ENERGY_LOSS_RUN);
                 }
             }
         }
@@ -231,12 +362,12 @@ public class Avatar extends GameObject {
         if (inputListener.isKeyPressed(KeyEvent.VK_SPACE)) {
             if (onGround && energy >= ENERGY_LOSS_JUMP) {
                 transform().setVelocityY(VELOCITY_Y);
-                energy -= ENERGY_LOSS_JUMP;
+                setEnergy(energy - ENERGY_LOSS_JUMP);
                 onGround = false;
                 groundContacts = 0; // leaving ground intentionally
             } else if (!onGround && energy >= ENERGY_LOSS_AIR_JUMP && getVelocity().y() > 0) {
                 transform().setVelocityY(VELOCITY_Y);
-                energy -= ENERGY_LOSS_AIR_JUMP;
+                setEnergy(energy - ENERGY_LOSS_AIR_JUMP);
             }
         }
     }
@@ -246,7 +377,7 @@ public class Avatar extends GameObject {
      */
     private void handleEnergyRecovery(float xVel) {
         if (onGround && xVel == 0) {
-            energy = Math.min(MAX_ENERGY, energy + ENERGY_RECOVERY);
+            setEnergy(Math.min(MAX_ENERGY, energy + ENERGY_RECOVERY));
         }
     }
 
@@ -267,11 +398,13 @@ public class Avatar extends GameObject {
 
         // Handle Horizontal Flip
         if (xVel != 0) {
-            renderer().setIsFlippedHorizontally(xVel < 0);
+            facingLeft = xVel < 0;
+            renderer().setIsFlippedHorizontally(facingLeft);
         }
 
         // Update Renderable if state changed
         if (newState != curruntState) {
+            AvatarStateEvent.record(curruntState, newState, getTopLeftCorner().x());
             curruntState = newState;
             switch (curruntState) {
                 case IDLE -> renderer().setRenderable(standingAnimation);
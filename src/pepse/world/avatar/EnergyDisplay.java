@@ -6,93 +6,71 @@ import danogl.gui.rendering.TextRenderable;
 import danogl.util.Vector2;
 
 import java.awt.*;
-import java.util.function.Supplier;
 
 /**
  * A UI element responsible for displaying the avatar's current energy level.
  * <p>
- * The display observes an external energy supplier and updates its text
- * and color dynamically based on the energy value.
+ * The display is an {@link EnergyListener}: the avatar pushes every energy change to it,
+ * so it does no work on frames where the energy stays the same. All 101 possible texts
+ * (0% to 100%) are built once, so a change only swaps a cached string and color.
  * The element is rendered in camera coordinates so it remains fixed
  * on the screen regardless of world movement.
  */
-public class EnergyDisplay extends GameObject {
+public class EnergyDisplay extends GameObject implements EnergyListener {
 
     // --- Constants ---
-    private static final String ENERGY_FORMAT = "energy: %.0f%%";
-    private static final String INITIAL_ENERGY_TEXT = "energy: 100%";
-    private static final float INITIAL_ENERGY_VALUE = 100f;
-    private static final float CRITICAL_ENERGY_THRESHOLD = 20f;
+    private static final String ENERGY_FORMAT = "energy: %d%%";
+    private static final int MAX_ENERGY = 100;
+    private static final int CRITICAL_ENERGY_THRESHOLD = 20;
     private static final Color NORMAL_COLOR = Color.BLACK;
     private static final Color CRITICAL_COLOR = Color.RED;
-    private static final float TEXT_SIZE_MULTIPLIER = 2f;
+    private static final String[] ENERGY_TEXTS = createTexts();
 
     // --- Members ---
     private final TextRenderable textRenderable;
-    private final Supplier<Float> energySupplier;
-    private float lastEnergy;
+    private int lastEnergy;
 
     /**
-     * Constructs a new {@code EnergyDisplay}.
+     * Constructs a new {@code EnergyDisplay}, showing full energy.
      *
      * @param topLeftCorner the top-left position of the display on the screen
      * @param dimensions the size of the display area
-     * @param energySupplier a supplier providing the current energy value
      */
-    public EnergyDisplay(Vector2 topLeftCorner,
-                         Vector2 dimensions,
-                         Supplier<Float> energySupplier) {
+    public EnergyDisplay(Vector2 topLeftCorner, Vector2 dimensions) {
 
         // Initialize with default percentage
-        super(topLeftCorner, dimensions, new TextRenderable(INITIAL_ENERGY_TEXT));
+        super(topLeftCorner, dimensions, new TextRenderable(ENERGY_TEXTS[MAX_ENERGY]));
 
         this.textRenderable = (TextRenderable) this.renderer().getRenderable();
-        this.energySupplier = energySupplier;
-        this.lastEnergy = INITIAL_ENERGY_VALUE;
+        this.lastEnergy = MAX_ENERGY;
+        textRenderable.setColor(NORMAL_COLOR);
 
         // Ensure the UI stays fixed on the screen regardless of camera movement
         this.setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
     }
 
     /**
-     * Updates the energy display each frame.
-     * <p>
-     * The displayed text and color are updated only if the energy value
-     * has changed since the last frame, in order to improve performance.
+     * Updates the displayed text and color to a new energy level.
      *
-     * @param deltaTime time elapsed since the last update
+     * @param energy the new energy level, between 0 and 100
      */
     @Override
-    public void update(float deltaTime) {
-        super.update(deltaTime);
+    public void onEnergyChanged(int energy) {
+        int clamped = Math.max(0, Math.min(MAX_ENERGY, energy));
+        if (clamped == lastEnergy) return;
 
-        float currentEnergy = energySupplier.get();
-
-        // Optimization: Only update the string if the value actually changed
-        if (currentEnergy != lastEnergy) {
-            updateDisplayText(currentEnergy);
-            updateDisplayColor(currentEnergy);
-            lastEnergy = currentEnergy;
+        textRenderable.setString(ENERGY_TEXTS[clamped]);
+        if ((clamped < CRITICAL_ENERGY_THRESHOLD) != (lastEnergy < CRITICAL_ENERGY_THRESHOLD)) {
+            textRenderable.setColor(clamped < CRITICAL_ENERGY_THRESHOLD ? CRITICAL_COLOR : NORMAL_COLOR);
         }
+        lastEnergy = clamped;
     }
 
-    /**
-     * Updates the textual representation of the energy value.
-     *
-     * @param energy the current energy value
-     */
-    private void updateDisplayText(float energy) {
-        textRenderable.setString(String.format(ENERGY_FORMAT, energy));
-    }
-
-    /**
-     * Changes the text color based on the energy level (e.g., Red for low energy).
-     */
-    private void updateDisplayColor(float energy) {
-        if (energy < CRITICAL_ENERGY_THRESHOLD) {
-            textRenderable.setColor(CRITICAL_COLOR);
-        } else {
-            textRenderable.setColor(NORMAL_COLOR);
+    private static String[] createTexts() {
+        String[] texts = new String[MAX_ENERGY + 1];
+        for (int i = 0; i <= MAX_ENERGY; i++) {
+            texts[i] = String.format(ENERGY_FORMAT, i);
         }
+        return texts;
     }
 }
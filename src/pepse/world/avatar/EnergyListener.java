@@ -0,0 +1,15 @@
+package pepse.world.avatar;
+
+/**
+ * Receives the avatar's energy level whenever it changes.
+ */
+@FunctionalInterface
+public interface EnergyListener {
+
+    /**
+     * Called after the avatar's energy changed.
+     *
+     * @param energy the new energy level, between 0 and 100
+     */
+    void onEnergyChanged(int energy);
+}
@@ -0,0 +1,19 @@
+package pepse.world.avatar;
+
+/**
+ * Answers where the ground is under the avatar's feet, without collision bodies.
+ * <p>
+ * An avatar given a probe decides whether it stands on the ground from the probe's
+ * answer instead of counting collisions with ground objects.
+ */
+@FunctionalInterface
+public interface GroundProbe {
+
+    /**
+     * @param minX the left edge of the span to test (inclusive)
+     * @param maxX the right edge of the span to test (exclusive)
+     * @return the highest (smallest) Y-coordinate of any ground under the span,
+     * or {@link Float#POSITIVE_INFINITY} if there is none
+     */
+    float groundTopUnder(float minX, float maxX);
+}
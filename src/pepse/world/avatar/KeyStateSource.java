@@ -0,0 +1,17 @@
+package pepse.world.avatar;
+
+/**
+ * Provides the pressed state of keyboard keys to the avatar.
+ * <p>
+ * {@code UserInputListener::isKeyPressed} satisfies this interface for live play;
+ * recorded input can be substituted to replay a session deterministically.
+ */
+@FunctionalInterface
+public interface KeyStateSource {
+
+    /**
+     * @param keyCode a {@link java.awt.event.KeyEvent} key code
+     * @return whether the key is currently pressed
+     */
+    boolean isKeyPressed(int keyCode);
+}
@@ -1,57 +1,159 @@
 package pepse.world.daynight;
 
-import danogl.GameObject;
-import danogl.components.CoordinateSpace;
-import danogl.components.Transition;
+import danogl.gui.rendering.ImageRenderable;
+import danogl.gui.rendering.OvalRenderable;
 import danogl.gui.rendering.RectangleRenderable;
+import danogl.gui.rendering.Renderable;
 import danogl.util.Vector2;
+import pepse.utils.Easing;
+import pepse.world.WorldClock;
 
 import java.awt.*;
-
-import static danogl.components.Transition.TransitionType.TRANSITION_BACK_AND_FORTH;
+import java.awt.image.BufferedImage;
+import java.util.IdentityHashMap;
+import java.util.function.Function;
 
 /**
- * A utility class responsible for creating the night overlay effect.
+ * Darkens the world during the night without a full-screen overlay.
+ * <p>
+ * The darkness follows the same back-and-forth curve between noon and midnight that the
+ * old black overlay's opacity did, but is quantized into a fixed number of shade levels
+ * and precomputed per cycle phase. Objects are drawn with {@link ShadedRenderable}s,
+ * which hold one pre-darkened renderable per level and draw the one for the current
+ * level, so the scene is darkened in the same pass that draws it. Images, such as the
+ * avatar's animation frames, get fewer darkened copies, each shared by neighbouring levels.
  * <p>
- * The night effect is implemented as a full-screen black rectangle whose
- * opacity smoothly transitions between day (noon) and night (midnight)
- * using a back-and-forth animation cycle.
+ * The phase of the cycle is read from the {@link WorldClock}; the level is looked up at
+ * most once per clock tick.
  */
 public class Night {
 
-
     // --- Constants ---
-    private static final String NIGHT_TAG = "night";
-    private static final Float NOON_OPACITY = 0f;
-    private static final Float MIDNIGHT_OPACITY = 0.5f;
+    private static final float NOON_DARKNESS = 0f;
+    private static final float MIDNIGHT_DARKNESS = 0.5f;
+    private static final int SHADE_LEVELS = 64;
+    private static final int PHASE_STEPS = 1024;
+    private static final int PASSES_PER_PERIOD = 2;   // noon -> midnight -> noon
+    private static final int MAX_CHANNEL = 255;
+    private static final int IMAGE_SHADES = 16;
+
+    private final int[] levelByPhase = new int[PHASE_STEPS];
+    private final float period;
+    private final WorldClock clock;
+    private final IdentityHashMap<ImageRenderable, Renderable> shadedImages =
+            new IdentityHashMap<>();
+    private long levelFrame = -1;
+    private int level;
 
     /**
-     * Creates and returns a night overlay game object.
-     * <p>
-     * The overlay covers the entire window and smoothly transitions its
-     * opacity between {@link #NOON_OPACITY} and {@link #MIDNIGHT_OPACITY}
-     * over the given cycle length. The object is rendered in camera
-     * coordinates so it remains fixed relative to the screen.
+     * Constructs the night cycle, which is at noon when the clock starts.
      *
-     * @param windowDimensions the dimensions of the game window
-     * @param cycleLength the duration (in seconds) of a full day-night cycle
-     * @return a {@link GameObject} representing the night overlay
+     * @param clock the world clock providing the cycle's phase
+     * @param cycleLength the duration (in seconds) of a noon-to-midnight transition
      */
-    public static GameObject create(Vector2 windowDimensions, float cycleLength) {
-        RectangleRenderable renderable = new RectangleRenderable(Color.BLACK);
-        GameObject night = new GameObject(Vector2.ZERO,windowDimensions ,renderable);
-        night.setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
-        night.setTag(NIGHT_TAG);
-        new Transition<Float>(
-                night,
-                night.renderer()::setOpaqueness,
-                NOON_OPACITY,
-                MIDNIGHT_OPACITY,
-                Transition.CUBIC_INTERPOLATOR_FLOAT,
-                cycleLength,
-                TRANSITION_BACK_AND_FORTH,
-                null);
-        return  night;
+    public Night(WorldClock clock, float cycleLength) {
+        this.clock = clock;
+        this.period = cycleLength * PASSES_PER_PERIOD;
+        for (int i = 0; i < PHASE_STEPS; i++) {
+            float darkness = Easing.backAndForth(
+                    NOON_DARKNESS, MIDNIGHT_DARKNESS, period * i / PHASE_STEPS, cycleLength);
+            levelByPhase[i] = Math.round(darkness / MIDNIGHT_DARKNESS * (SHADE_LEVELS - 1));
+        }
     }
 
+    /** @return the current shade level, 0 at noon */
+    public int level() {
+        long frame = clock.frame();
+        if (frame != levelFrame) {
+            levelFrame = frame;
+            float phase = clock.phase(0, period);
+            level = levelByPhase[(int) (phase / period * PHASE_STEPS) % PHASE_STEPS];
+        }
+        return level;
+    }
+
+    /**
+     * Creates a rectangle renderable that is darkened along with the world.
+     *
+     * @param color the color at noon
+     * @return a renderable following the night's shade level
+     */
+    public Renderable shadedRectangle(Color color) {
+        return shaded(color, RectangleRenderable::new);
+    }
+
+    /**
+     * Creates an oval renderable that is darkened along with the world.
+     *
+     * @param color the color at noon
+     * @return a renderable following the night's shade level
+     */
+    public Renderable shadedOval(Color color) {
+        return shaded(color, OvalRenderable::new);
+    }
+
+    /**
+     * Creates an image renderable that is darkened along with the world. Its darkened
+     * copies are made once per image and shared by every caller.
+     *
+     * @param image the image at noon
+     * @return a renderable following the night's shade level
+     */
+    public Renderable shadedImage(ImageRenderable image) {
+        return shadedImages.computeIfAbsent(image, this::shadeImage);
+    }
+
+    private Renderable shadeImage(ImageRenderable image) {
+        int width = image.width();
+        int height = image.height();
+        BufferedImage noon = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = noon.createGraphics();
+        image.render(g, Vector2.ZERO, new Vector2(width, height), 0, false, false, 1);
+        g.dispose();
+        int[] pixels = noon.getRGB(0, 0, width, height, null, 0, width);
+
+        Renderable[] shades = new Renderable[IMAGE_SHADES];
+        int[] darkened = new int[pixels.length];
+        for (int s = 0; s < IMAGE_SHADES; s++) {
+            float keep = 1f - MIDNIGHT_DARKNESS * s / (IMAGE_SHADES - 1);
+            for (int i = 0; i < pixels.length; i++) {
+                darkened[i] = darken(pixels[i], keep);
+            }
+            BufferedImage shade = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            shade.setRGB(0, 0, width, height, darkened, 0, width);
+            shades[s] = new ImageRenderable(shade);
+        }
+        Renderable[] byLevel = new Renderable[SHADE_LEVELS];
+        for (int i = 0; i < SHADE_LEVELS; i++) {
+            byLevel[i] = shades[Math.round((float) i * (IMAGE_SHADES - 1) / (SHADE_LEVELS - 1))];
+        }
+        return new ShadedRenderable(this, byLevel);
+    }
+
+    // an ARGB pixel scaled like darken(Color, float), keeping its alpha
+    private static int darken(int argb, float keep) {
+        int red = Math.round((argb >> 16 & MAX_CHANNEL) * keep);
+        int green = Math.round((argb >> 8 & MAX_CHANNEL) * keep);
+        int blue = Math.round((argb & MAX_CHANNEL) * keep);
+        return argb & 0xFF000000 | red << 16 | green << 8 | blue;
+    }
+
+    private Renderable shaded(Color color, Function<Color, Renderable> shape) {
+        Renderable[] byLevel = new Renderable[SHADE_LEVELS];
+        for (int i = 0; i < SHADE_LEVELS; i++) {
+            float darkness = MIDNIGHT_DARKNESS * i / (SHADE_LEVELS - 1);
+            byLevel[i] = shape.apply(darken(color, darkness));
+        }
+        return new ShadedRenderable(this, byLevel);
+    }
+
+    // the color seen through a black overlay of the given opacity
+    private static Color darken(Color color, float darkness) {
+        float keep = 1f - darkness;
+        return new Color(
+                Math.min(MAX_CHANNEL, Math.round(color.getRed() * keep)),
+                Math.min(MAX_CHANNEL, Math.round(color.getGreen() * keep)),
+                Math.min(MAX_CHANNEL, Math.round(color.getBlue() * keep)),
+                color.getAlpha());
+    }
 }
@@ -0,0 +1,38 @@
+package pepse.world.daynight;
+
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+
+import java.awt.*;
+
+/**
+ * A renderable that draws one of several pre-darkened variants, chosen by the
+ * current shade level of a {@link Night}.
+ * <p>
+ * Every object sharing the same base color can share one instance, so the whole
+ * world changes shade without touching any game object.
+ */
+public class ShadedRenderable implements Renderable {
+
+    private final Night night;
+    private final Renderable[] byLevel;
+
+    /**
+     * Constructs a new {@code ShadedRenderable}.
+     *
+     * @param night   the night cycle providing the shade level
+     * @param byLevel one renderable per shade level, from noon to midnight
+     */
+    ShadedRenderable(Night night, Renderable[] byLevel) {
+        this.night = night;
+        this.byLevel = byLevel;
+    }
+
+    @Override
+    public void render(Graphics2D g, Vector2 topLeftCorner, Vector2 dimensions,
+                       double degreesCounterClockwise, boolean isFlippedHorizontally,
+                       boolean isFlippedVertically, double opaqueness) {
+        byLevel[night.level()].render(g, topLeftCorner, dimensions, degreesCounterClockwise,
+                isFlippedHorizontally, isFlippedVertically, opaqueness);
+    }
+}
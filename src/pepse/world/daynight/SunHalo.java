@@ -2,7 +2,7 @@ package pepse.world.daynight;
 
 import danogl.GameObject;
 import danogl.components.CoordinateSpace;
-import danogl.gui.rendering.OvalRenderable;
+import danogl.gui.rendering.Renderable;
 import danogl.util.Vector2;
 
 import java.awt.*;
@@ -12,7 +12,8 @@ import java.awt.*;
  * <p>
  * The halo is rendered as a semi-transparent circle that surrounds the sun
  * in order to create a glowing atmospheric effect. The halo is positioned
- * in camera coordinates so it remains visually aligned with the sun.
+ * in camera coordinates so it remains visually aligned with the sun, following
+ * the sun's orbit through its own table of precomputed positions.
  */
 public class SunHalo {
 
@@ -30,12 +31,14 @@ public class SunHalo {
      * consistent alignment with the sun on screen.
      *
      * @param sun the sun {@link GameObject} that the halo surrounds
+     * @param orbit the orbit the sun travels along
+     * @param night the night cycle darkening the halo
      * @return a {@link GameObject} representing the sun's halo
      */
 
-    public static GameObject create(GameObject sun){
+    public static GameObject create(GameObject sun, SunOrbit orbit, Night night){
         // Prepare the visual representation
-        OvalRenderable renderable = new OvalRenderable(SUN_HALO_COLOR);
+        Renderable renderable = night.shadedOval(SUN_HALO_COLOR);
 
         // Calculate dimensions: the halo is larger than the sun itself
         Vector2 sunDimensions = sun.getDimensions();
@@ -43,12 +46,14 @@ public class SunHalo {
 
         // Create the halo object centered at the sun's current position
         GameObject sunHalo = new GameObject(
-                Vector2.ZERO, // Initial position, will be updated by center synchronization
+                Vector2.ZERO, // Initial position, will be set from the orbit table
                 haloDimensions,
                 renderable);
 
-        // Ensure the halo is correctly centered initially
-        sunHalo.setCenter(sun.getCenter());
+        // Follow the sun along the orbit without recomputing centers every frame
+        Vector2[] topLefts = orbit.topLeftsFor(haloDimensions);
+        sunHalo.setTopLeftCorner(topLefts[orbit.currentStep()]);
+        sunHalo.addComponent(deltaTime -> sunHalo.setTopLeftCorner(topLefts[orbit.currentStep()]));
 
         // UI/Camera Settings
         sunHalo.setCoordinateSpace(CoordinateSpace.CAMERA_COORDINATES);
@@ -0,0 +1,77 @@
+package pepse.world.daynight;
+
+import danogl.util.Vector2;
+import pepse.world.WorldClock;
+
+/**
+ * The circular path the sun travels along during a day-night cycle.
+ * <p>
+ * The path is sampled once into a table of positions, so objects following it
+ * (the sun and its halo) only look up precomputed vectors every frame instead of
+ * rotating and allocating new ones. The current position is derived from the
+ * {@link WorldClock}.
+ */
+public class SunOrbit {
+
+    // --- Constants ---
+    private static final float SUN_HEIGHT_RATIO = 0.2f;
+    private static final float SUN_X_LOCATION_RATIO = 2f;
+    private static final float CYCLE_CENTER_Y_RATIO = 2f / 3f;
+    private static final float CYCLE_CENTER_X_RATIO = 0.5f;
+    private static final float HALF_RATIO = 0.5f;
+    private static final int ORBIT_STEPS = 3600;   // 0.1 degree per step
+
+    private final float[] centerX = new float[ORBIT_STEPS];
+    private final float[] centerY = new float[ORBIT_STEPS];
+    private final float cycleLength;
+    private final WorldClock clock;
+
+    /**
+     * Constructs the orbit for the given window.
+     *
+     * @param windowDimensions the dimensions of the game window
+     * @param clock the world clock providing the position along the orbit
+     * @param cycleLength the duration (in seconds) of a full rotation
+     */
+    public SunOrbit(Vector2 windowDimensions, WorldClock clock, float cycleLength) {
+        this.clock = clock;
+        this.cycleLength = cycleLength;
+
+        float startX = windowDimensions.x() / SUN_X_LOCATION_RATIO;
+        float startY = windowDimensions.y() * SUN_HEIGHT_RATIO;
+        float pivotX = windowDimensions.x() * CYCLE_CENTER_X_RATIO;
+        float pivotY = windowDimensions.y() * CYCLE_CENTER_Y_RATIO;
+        float dx = startX - pivotX;
+        float dy = startY - pivotY;
+
+        for (int i = 0; i < ORBIT_STEPS; i++) {
+            double radians = 2 * Math.PI * i / ORBIT_STEPS;
+            double cos = Math.cos(radians);
+            double sin = Math.sin(radians);
+            centerX[i] = (float) (dx * cos - dy * sin) + pivotX;
+            centerY[i] = (float) (dx * sin + dy * cos) + pivotY;
+        }
+    }
+
+    /** @return the index of the current position in tables built by {@link #topLeftsFor} */
+    public int currentStep() {
+        return (int) (clock.phase(0, cycleLength) / cycleLength * ORBIT_STEPS) % ORBIT_STEPS;
+    }
+
+    /**
+     * Builds the table of top-left corners that keep an object of the given
+     * dimensions centered on each position of the orbit.
+     *
+     * @param dimensions the dimensions of the following object
+     * @return a table indexed by {@link #currentStep()}
+     */
+    public Vector2[] topLeftsFor(Vector2 dimensions) {
+        Vector2[] topLefts = new Vector2[ORBIT_STEPS];
+        float halfWidth = dimensions.x() * HALF_RATIO;
+        float halfHeight = dimensions.y() * HALF_RATIO;
+        for (int i = 0; i < ORBIT_STEPS; i++) {
+            topLefts[i] = new Vector2(centerX[i] - halfWidth, centerY[i] - halfHeight);
+        }
+        return topLefts;
+    }
+}
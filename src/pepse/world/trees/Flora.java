@@ -1,11 +1,18 @@
 package pepse.world.trees;
 
-import danogl.util.Vector2;
 import pepse.world.Block;
+import pepse.world.DensityProfile;
+import pepse.world.WorldClock;
+import pepse.world.daynight.Night;
 import pepse.world.trees.Tree;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Random;
+import java.util.stream.IntStream;
 
 /**
  * Responsible for procedural vegetation generation (trees) in the game world.
@@ -19,17 +26,23 @@ import java.util.Random;
  *     <li>A safe zone in the first chunk for avatar spawning</li>
  *     <li>Random odds for tree generation</li>
  * </ul>
+ * Each range is generated from a seed derived from its left edge, so a released chunk
+ * is regenerated with the same trees. Tree parts are recycled through a shared pool.
+ * The trees of a range share one {@link FruitState}; the state of a released range with
+ * fruits still eaten is kept, and given back to the range's trees when it is regenerated.
  */
 public class Flora {
 
-    // ---- Generation tuning ----
+    // ---- Generation tuning (odds and spacing come from the density profile) ----
     private static final int STEP_X = Block.SIZE;   // sample every block
-    private static final int TREE_ODDS = 1;         // 1 out of TOTAL_ODDS
-    private static final int TOTAL_ODDS = 10;
-    private static final int MIN_TREE_GAP_BLOCKS = 10;
+    private static final int FIRST_SPAWN_ROLL = 1;  // rolls FIRST_SPAWN_ROLL.. place a tree
+    // a blueprint takes ~7 us and waking the idle pool ~50 us; a chunk has a handful of
+    // trees, so only ranges many chunks wide are drawn in parallel
+    private static final int PARALLEL_MIN_TREES = 64;
 
     // ---- Determinism ----
     private static final int DEFAULT_SEED = 1337;
+    private static final long RANGE_SEED_MULTIPLIER = 341873128712L;
 
     // ---- First-chunk safe zone (avatar spawn) ----
     private static final int FIRST_CHUNK_MIN_X = 0;
@@ -40,7 +53,11 @@ public class Flora {
     private static final int AVATAR_SAFE_MAX_X = 500;
 
     private final GroundHeightProvider groundHeightProvider;
-    private final Random random;
+    private final long seed;
+    private final DensityProfile density;
+    private final TreePartsPool partsPool;
+    private final WorldClock clock;
+    private final HashMap<Integer, FruitState> releasedFruits = new HashMap<>(); // by minX
 
     /**
      * Callback interface to provide ground height at a given x-coordinate.
@@ -52,37 +69,154 @@ public class Flora {
     }
 
     /**
-     * Constructs a Flora generator with a given seed.
+     * Receives tree positions chosen by {@link #placeInRange}.
+     */
+    @FunctionalInterface
+    public interface TreePlacement {
+        /**
+         * @param x       the left edge of the trunk
+         * @param groundY the top of the ground block the trunk stands on
+         */
+        void place(int x, int groundY);
+    }
+
+    /**
+     * Constructs a Flora generator with a given seed and density.
      *
      * @param groundHeightProvider function to obtain ground heights
      * @param seed                 seed for deterministic tree generation
+     * @param density              the density profile: tree odds, spacing and canopies
+     * @param night                the night cycle darkening the trees
+     * @param clock                the world clock driving tree animations
      */
-    public Flora(GroundHeightProvider groundHeightProvider, int seed) {
+    public Flora(GroundHeightProvider groundHeightProvider, int seed, DensityProfile density,
+                 Night night, WorldClock clock) {
         this.groundHeightProvider = groundHeightProvider;
-        this.random = new Random(seed);
+        this.partsPool = new TreePartsPool(
+                Tree.LEAF_DIMENSIONS, Tree.FRUIT_DIMENSIONS, night, clock);
+        this.seed = seed;
+        this.density = density;
+        this.clock = clock;
+    }
+
+    /**
+     * Constructs a Flora generator of the default density with a given seed.
+     *
+     * @param groundHeightProvider function to obtain ground heights
+     * @param seed                 seed for deterministic tree generation
+     * @param night                the night cycle darkening the trees
+     * @param clock                the world clock driving tree animations
+     */
+    public Flora(GroundHeightProvider groundHeightProvider, int seed, Night night, WorldClock clock) {
+        this(groundHeightProvider, seed, DensityProfile.DEFAULT, night, clock);
+    }
+
+    /**
+     * Constructs a Flora generator with a default deterministic seed and a given density.
+     *
+     * @param groundHeightProvider function to obtain ground heights
+     * @param density              the density profile: tree odds, spacing and canopies
+     * @param night                the night cycle darkening the trees
+     * @param clock                the world clock driving tree animations
+     */
+    public Flora(GroundHeightProvider groundHeightProvider, DensityProfile density,
+                 Night night, WorldClock clock) {
+        this(groundHeightProvider, DEFAULT_SEED, density, night, clock);
     }
 
     /**
      * Constructs a Flora generator with a default deterministic seed.
      *
      * @param groundHeightProvider function to obtain ground heights
+     * @param night                the night cycle darkening the trees
+     * @param clock                the world clock driving tree animations
+     */
+    public Flora(GroundHeightProvider groundHeightProvider, Night night, WorldClock clock) {
+        this(groundHeightProvider, DEFAULT_SEED, DensityProfile.DEFAULT, night, clock);
+    }
+
+    /** @return the density profile the trees are generated with */
+    public DensityProfile getDensityProfile() {
+        return density;
+    }
+
+    /**
+     * Sets the listener told about fruits eaten or respawned on trees generated from now on.
+     *
+     * @param fruitListener the listener, or null for none
+     */
+    public void setFruitListener(FruitListener fruitListener) {
+        partsPool.setFruitListener(fruitListener);
+    }
+
+    /**
+     * Sets how often the leaves of all trees advance their wind animation, existing
+     * leaves included.
+     *
+     * @param leafAnimationStride the number of frames per animation step, at least 1
      */
-    public Flora(GroundHeightProvider groundHeightProvider) {
-        this(groundHeightProvider, DEFAULT_SEED);
+    public void setLeafAnimationStride(int leafAnimationStride) {
+        partsPool.setLeafAnimationStride(leafAnimationStride);
     }
 
     /**
      * Generates {@link Tree} objects in the horizontal range [minX, maxX].
      * <p>
      * Ensures spacing between trees, avoids the avatar safe zone in the first chunk,
-     * and snaps ground height to the Block grid.
+     * and snaps ground height to the Block grid. Once the positions are chosen, the trees'
+     * canopies are laid out, each from its own position-seeded sequence (in parallel on the
+     * common fork-join pool for a range of many chunks), then the trees take their trunks
+     * from the pool in order, so the result does not depend on scheduling. The trees'
+     * fruits are eaten as they were when the range was last released, if they have not
+     * respawned since.
      *
      * @param minX minimum X-coordinate (inclusive)
      * @param maxX maximum X-coordinate (inclusive)
      * @return list of trees generated in the range
      */
     public ArrayList<Tree> createInRange(int minX, int maxX) {
-        ArrayList<Tree> trees = new ArrayList<>();
+        ArrayList<int[]> positions = new ArrayList<>();
+        placeInRange(minX, maxX, (x, groundY) -> positions.add(new int[] {x, groundY}));
+
+        Tree.Blueprint[] blueprints = new Tree.Blueprint[positions.size()];
+        IntStream indices = IntStream.range(0, blueprints.length);
+        if (blueprints.length >= PARALLEL_MIN_TREES) indices = indices.parallel();
+        indices.forEach(i -> blueprints[i] =
+                Tree.Blueprint.draw(positions.get(i)[0], positions.get(i)[1], density));
+
+        int fruitCount = 0;
+        for (Tree.Blueprint blueprint : blueprints) {
+            fruitCount += blueprint.fruitCount();
+        }
+        FruitState fruits = releasedFruits.remove(minX);
+        if (fruits == null || fruits.size() != fruitCount) {
+            fruits = new FruitState(fruitCount, minX);
+        }
+
+        ArrayList<Tree> trees = new ArrayList<>(blueprints.length);
+        int firstFruit = 0;
+        for (Tree.Blueprint blueprint : blueprints) {
+            trees.add(new Tree(blueprint, partsPool, fruits, firstFruit));
+            firstFruit += blueprint.fruitCount();
+        }
+        return trees;
+    }
+
+    /**
+     * Chooses the tree positions of the horizontal range [minX, maxX] exactly as
+     * {@link #createInRange} does, without creating any objects. Together with
+     * {@link TreeSpec#at(int, int, DensityProfile)} this describes the range's trees
+     * completely.
+     * <p>
+     * Placement has no shared state, so ranges may be placed from several threads at once
+     * (as long as the ground height provider allows it).
+     *
+     * @param minX      minimum X-coordinate (inclusive)
+     * @param maxX      maximum X-coordinate (inclusive)
+     * @param placement receives each tree's position, from left to right
+     */
+    public void placeInRange(int minX, int maxX, TreePlacement placement) {
+        Random random = new Random(seed * RANGE_SEED_MULTIPLIER + minX);
 
         // snap range to STEP_X
         int start = (minX / STEP_X) * STEP_X;
@@ -91,7 +225,8 @@ public class Flora {
         boolean isFirstChunk =
                 minX == FIRST_CHUNK_MIN_X && maxX == FIRST_CHUNK_MAX_X;
 
-        int lastTreeX = start - MIN_TREE_GAP_BLOCKS * STEP_X;
+        int minTreeGap = density.getMinTreeGapBlocks() * STEP_X;
+        int lastTreeX = start - minTreeGap;
 
         for (int x = start; x <= end; x += STEP_X) {
 
@@ -101,12 +236,15 @@ public class Flora {
             }
 
             // keep spacing between trees
-            if (x - lastTreeX < MIN_TREE_GAP_BLOCKS * STEP_X) {
+            if (x - lastTreeX < minTreeGap) {
                 continue;
             }
 
-            // chance to spawn
-            if (random.nextInt(TOTAL_ODDS) != TREE_ODDS) {
+            // chance to spawn: treeOdds of the totalOdds rolls, counted from
+            // FIRST_SPAWN_ROLL so the default profile keeps its trees
+            int roll = random.nextInt(density.getTotalOdds());
+            if (Math.floorMod(roll - FIRST_SPAWN_ROLL, density.getTotalOdds())
+                    >= density.getTreeOdds()) {
                 continue;
             }
 
@@ -114,10 +252,45 @@ public class Flora {
             float groundY = groundHeightProvider.groundHeightAt(x);
             groundY = (float)(Math.floor(groundY / Block.SIZE) * Block.SIZE);
 
-            trees.add(new Tree(new Vector2(x, groundY)));
+            placement.place(x, (int) groundY);
             lastTreeX = x;
         }
+    }
 
-        return trees;
+    /**
+     * @return the fruit states kept for released ranges, each with fruits eaten at the time
+     * its range was released; must not be modified
+     */
+    public Collection<FruitState> getReleasedFruits() {
+        return Collections.unmodifiableCollection(releasedFruits.values());
+    }
+
+    /**
+     * Keeps a fruit state as if its range had been released with it, so the range's trees
+     * get it when the range is next generated; this is how a saved game's eaten fruits
+     * come back.
+     *
+     * @param fruits the state, whose range is not generated at the moment
+     */
+    public void keepReleasedFruits(FruitState fruits) {
+        releasedFruits.put(fruits.getRangeMinX(), fruits);
+    }
+
+    /**
+     * Returns the parts of trees of a released chunk to the pool. The trees must already
+     * be removed from the game. If some of their fruits are eaten, their fruit state is kept
+     * for the range's regeneration; kept states whose fruits have all respawned are dropped.
+     *
+     * @param trees the trees of one range, as created by {@link #createInRange}
+     */
+    public void releaseTrees(List<Tree> trees) {
+        for (Tree tree : trees) {
+            partsPool.release(tree);
+        }
+        double now = clock.time();
+        releasedFruits.values().removeIf(fruits -> !fruits.hasEaten(now));
+        if (trees.isEmpty()) return;
+        FruitState fruits = trees.get(0).getFruitState();
+        if (fruits.hasEaten(now)) releasedFruits.put(fruits.getRangeMinX(), fruits);
     }
 }
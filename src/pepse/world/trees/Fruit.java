@@ -2,25 +2,32 @@
 package pepse.world.trees;
 
 import danogl.GameObject;
-import danogl.components.ScheduledTask;
-import danogl.gui.rendering.OvalRenderable;
+import danogl.gui.rendering.Renderable;
 import danogl.util.Vector2;
+import pepse.metrics.FruitEvent;
+import pepse.world.WorldClock;
 
 import java.awt.Color;
 import java.util.Random;
+import java.util.function.Function;
 
 /**
  * Represents a collectible fruit in the game world.
  * <p>
  * A fruit is rendered as a colored circle and can be collected by the avatar.
  * Upon collection, the fruit disappears temporarily and respawns after a
- * fixed amount of time corresponding to a full day cycle.
+ * fixed amount of time corresponding to a full day cycle, measured on the
+ * {@link WorldClock} (so no timer runs while the fruit is out of the game).
+ * <p>
+ * Whether a fruit is eaten is not stored in the object: a fruit is a view over one slot
+ * of a {@link FruitState}, which outlives it. Fruit objects are recycled through
+ * {@link #reset(Vector2, FruitState, int)}, taking on the state of their new slot.
  */
 public class Fruit extends GameObject {
 
-    // --- Constants ---
-    private static final float DAY_CYCLE_LENGTH = 30f;
-    private boolean eaten;
+    private FruitState state;
+    private int slot;
+    private boolean hidden;
 
     private static final Color[] FRUIT_COLORS = {
             new Color(200, 50, 50),    // red
@@ -33,6 +40,10 @@ public class Fruit extends GameObject {
     private static final float COLOR_SEED_Y_MULTIPLIER = 97f;
 
     private final Vector2 size;
+    private final Renderable[] colorRenderables;
+    private final Random colorRandom = new Random();
+    private final WorldClock clock;
+    private FruitListener listener;
 
     /** Tag assigned to all fruit objects */
     public static final String TAG = "fruit";
@@ -42,43 +53,89 @@ public class Fruit extends GameObject {
      *
      * @param topLeft the top-left position of the fruit
      * @param size the dimensions of the fruit
+     * @param colorRenderables one renderable per fruit color, see {@link #createRenderables}
+     * @param clock the world clock timing respawns
      */
-    public Fruit(Vector2 topLeft, Vector2 size) {
-        super(topLeft, size, new OvalRenderable(randomFruitColor(topLeft)));
+    public Fruit(Vector2 topLeft, Vector2 size, Renderable[] colorRenderables, WorldClock clock) {
+        super(topLeft, size, null);
         setTag(TAG);
-        eaten = false;
         this.size = size;
+        this.colorRenderables = colorRenderables;
+        this.clock = clock;
+        reset(topLeft, new FruitState(1), 0);
+    }
+
+    /**
+     * Reinitializes the fruit at a new position, as a view of a slot of a fruit state,
+     * with the color derived from that position. It is shown unless the slot is eaten.
+     *
+     * @param topLeft the new top-left position of the fruit
+     * @param state   the state of the fruit's chunk
+     * @param slot    the fruit's index in the state
+     */
+    public void reset(Vector2 topLeft, FruitState state, int slot) {
+        this.state = state;
+        this.slot = slot;
+        setTopLeftCorner(topLeft);
+        renderer().setRenderable(colorRenderables[randomFruitColorIndex(topLeft)]);
+        refresh();
+    }
+
+    /** Hides or shows the fruit according to its slot, without notifying the listener. */
+    void refresh() {
+        hidden = state.isEaten(slot, clock.time());
+        setDimensions(hidden ? Vector2.ZERO : size);   // no size -> effectively no collision
+        renderer().setOpaqueness(hidden ? 0f : 1f);
+    }
+
+
+    /** @param listener notified when the fruit is eaten or respawns, or null for none */
+    public void setListener(FruitListener listener) {
+        this.listener = listener;
+    }
+
+    /** @return whether the fruit has been eaten and not yet respawned */
+    public boolean isEaten() {
+        return hidden;
     }
 
+    /**
+     * Respawns the fruit once its respawn time on the world clock has passed.
+     *
+     * @param deltaTime time elapsed since the last frame
+     */
+    @Override
+    public void update(float deltaTime) {
+        super.update(deltaTime);
+        if (hidden && !state.isEaten(slot, clock.time())) {
+            respawn();
+        }
+    }
 
     /**
      * Makes the fruit disappear after being collected.
      * <p>
-     * The fruit becomes invisible and non-collidable, and a scheduled task
-     * is created to respawn it after {@link #DAY_CYCLE_LENGTH} seconds.
+     * The fruit becomes invisible and non-collidable, and respawns
+     * {@link WorldClock#DAY_CYCLE_LENGTH} seconds of world time later.
      */
     public void disappear() {
-        eaten = true;
-        setDimensions(Vector2.ZERO);        // no size -> effectively no collision
-        renderer().setOpaqueness(0f);       // invisible (if your renderer supports this)
-        new ScheduledTask(
-                this,                 // owner that always exists
-                DAY_CYCLE_LENGTH,     // 30 seconds
-                false,                 // repeat forever
-                this::respawn
-        );
+        state.eat(slot, clock.time() + WorldClock.DAY_CYCLE_LENGTH);
+        refresh();
+        FruitEvent.record(getTopLeftCorner().x(), getTopLeftCorner().y(), true);
+        if (listener != null) listener.onFruitEaten(this);
     }
 
     /**
      * Respawns the fruit if it was previously eaten.
      * <p>
-     * Restores the fruit's original size and visibility.
+     * Marks its slot not eaten and restores the fruit's original size and visibility.
      */
     public void respawn() {
-        if (eaten) {
-            eaten = false;
-            setDimensions(size);
-            renderer().setOpaqueness(1f);
+        if (hidden) {
+            state.respawn(slot);
+            refresh();
+            FruitEvent.record(getTopLeftCorner().x(), getTopLeftCorner().y(), false);
+            if (listener != null) listener.onFruitRespawned(this);
         }
     }
 
@@ -89,11 +146,25 @@ public class Fruit extends GameObject {
      * variation across different fruit locations.
      *
      * @param pos the position used to seed the random generator
-     * @return a color selected from {@link #FRUIT_COLORS}
+     * @return an index into {@link #FRUIT_COLORS}
      */
-    private static Color randomFruitColor(Vector2 pos) {
-        Random random = new Random((long)(
+    private int randomFruitColorIndex(Vector2 pos) {
+        colorRandom.setSeed((long)(
                 pos.x()*COLOR_SEED_X_MULTIPLIER + pos.y() * COLOR_SEED_Y_MULTIPLIER));
-        return FRUIT_COLORS[random.nextInt(FRUIT_COLORS.length)];
+        return colorRandom.nextInt(FRUIT_COLORS.length);
+    }
+
+    /**
+     * Creates one renderable per fruit color, to be shared by all fruits.
+     *
+     * @param shape creates the renderable drawing a single color
+     * @return renderables indexed like {@link #FRUIT_COLORS}
+     */
+    public static Renderable[] createRenderables(Function<Color, Renderable> shape) {
+        Renderable[] renderables = new Renderable[FRUIT_COLORS.length];
+        for (int i = 0; i < FRUIT_COLORS.length; i++) {
+            renderables[i] = shape.apply(FRUIT_COLORS[i]);
+        }
+        return renderables;
     }
 }
@@ -0,0 +1,13 @@
+package pepse.world.trees;
+
+/**
+ * Receives the changes of a fruit's eaten state.
+ */
+public interface FruitListener {
+
+    /** @param fruit a fruit that was just eaten */
+    void onFruitEaten(Fruit fruit);
+
+    /** @param fruit a fruit that was just restored after being eaten */
+    void onFruitRespawned(Fruit fruit);
+}
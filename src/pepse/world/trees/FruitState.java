@@ -0,0 +1,116 @@
+package pepse.world.trees;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Whether each fruit of a range of trees is eaten, and when eaten fruits respawn.
+ * <p>
+ * {@link Flora} gives all trees of a chunk one state, each tree a consecutive slice of it,
+ * and {@link Fruit} objects are views over it: eating a fruit or its respawning updates the
+ * state, and a fruit object taken from the pool shows the state of its slot. The state
+ * therefore does not depend on the fruit objects existing, and Flora keeps the state of a
+ * released chunk with fruits still eaten until the chunk is generated again.
+ * <p>
+ * An eaten fruit is a set bit and a respawn time on the world clock; the times are only
+ * allocated once a fruit is eaten, so a chunk whose fruits are all there costs a few bytes.
+ */
+public class FruitState {
+
+    /** Respawn time reported for a fruit that is not eaten */
+    public static final double NOT_EATEN = Double.NEGATIVE_INFINITY;
+
+    private final int size;
+    private final int rangeMinX;
+    private final BitSet eaten;
+    private double[] respawnTimes;  // parallel to eaten; null until a fruit is eaten
+
+    /**
+     * Constructs the state of fruits none of which is eaten.
+     *
+     * @param size the number of fruits
+     */
+    public FruitState(int size) {
+        this(size, 0);
+    }
+
+    /**
+     * Constructs the state of the fruits of a range of trees, none of which is eaten.
+     *
+     * @param size      the number of fruits
+     * @param rangeMinX the left edge of the range the fruits grow in
+     */
+    public FruitState(int size, int rangeMinX) {
+        this.size = size;
+        this.rangeMinX = rangeMinX;
+        this.eaten = new BitSet(size);
+    }
+
+    /** @return the number of fruits */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param fruit     a fruit index, below {@link #size()}
+     * @param worldTime the world clock's time
+     * @return whether the fruit is eaten and its respawn time has not passed
+     */
+    public boolean isEaten(int fruit, double worldTime) {
+        return eaten.get(fruit) && worldTime < respawnTimes[fruit];
+    }
+
+    /**
+     * @param fruit a fruit index, below {@link #size()}
+     * @return the world time at which the fruit respawns if it is eaten, or
+     * {@link #NOT_EATEN}
+     */
+    public double getRespawnTime(int fruit) {
+        return eaten.get(fruit) ? respawnTimes[fruit] : NOT_EATEN;
+    }
+
+    /**
+     * Marks a fruit eaten.
+     *
+     * @param fruit       a fruit index, below {@link #size()}
+     * @param respawnTime the world time at which the fruit respawns
+     */
+    public void eat(int fruit, double respawnTime) {
+        if (respawnTimes == null) {
+            respawnTimes = new double[size];
+            Arrays.fill(respawnTimes, NOT_EATEN);
+        }
+        eaten.set(fruit);
+        respawnTimes[fruit] = respawnTime;
+    }
+
+    /** @param fruit a fruit index, below {@link #size()}, to mark not eaten */
+    public void respawn(int fruit) {
+        eaten.clear(fruit);
+    }
+
+    /**
+     * @param worldTime the world clock's time
+     * @return the number of fruits not eaten at that time
+     */
+    public int countAvailable(double worldTime) {
+        int available = size;
+        for (int i = eaten.nextSetBit(0); i >= 0; i = eaten.nextSetBit(i + 1)) {
+            if (worldTime < respawnTimes[i]) available--;
+        }
+        return available;
+    }
+
+    /**
+     * @param worldTime the world clock's time
+     * @return whether any fruit is eaten at that time
+     */
+    public boolean hasEaten(double worldTime) {
+        return countAvailable(worldTime) < size;
+    }
+
+    /** @return the left edge of the range generated with this state */
+    public int getRangeMinX() {
+        return rangeMinX;
+    }
+}
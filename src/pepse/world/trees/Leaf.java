@@ -2,31 +2,42 @@
 package pepse.world.trees;
 
 import danogl.GameObject;
-import danogl.components.ScheduledTask;
-import danogl.components.Transition;
-import danogl.gui.rendering.RectangleRenderable;
+import danogl.gui.rendering.Renderable;
 import danogl.util.Vector2;
+import pepse.utils.Easing;
+import pepse.world.WorldClock;
 
 import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
 
 /**
  * Represents a single leaf in the tree canopy.
  * <p>
  * Each leaf is responsible for:
  * <ul>
- *   <li>Choosing its own green color with slight RGB noise</li>
+ *   <li>Choosing its own green shade from a shared palette of noisy greens</li>
  *   <li>Running a wind animation (rotation and size scaling)</li>
  * </ul>
  * The leaf's appearance and animation are deterministic based on its position,
  * ensuring visual consistency between runs.
  * <p>
+ * The wind animation is computed directly in {@link #update(float)} from the
+ * {@link WorldClock} and the leaf's own parameters rather than by attached transitions,
+ * so a leaf can be recycled through {@link #reset(Vector2)} without allocating new
+ * components, and keeps no timers while it is out of the game. To save work, the animation
+ * can be advanced only every few frames, each leaf on its own frames so the canopy's work
+ * is spread evenly.
+ * <p>
  * <b>Note:</b> The color palette here is exclusively green and is unrelated
  * to the fruit color palette.
  */
 public class Leaf extends GameObject {
 
-    private final Random random;
+    private final Random random = new Random();
     private static final long RANDOM_SEED_X_MULTIPLIER = 73L;
     private static final long RANDOM_SEED_Y_MULTIPLIER = 37L;
     private static final int INCLUSIVE_RANGE_OFFSET = 1;
@@ -35,12 +46,15 @@ public class Leaf extends GameObject {
     private static final Color LEAF_BASE_COLOR = new Color(50, 200, 30);
     private static final int LEAF_COLOR_NOISE = 25;
     private static final int HIGHEST_CHANNEL_VAL = 255;
+    private static final int LEAF_PALETTE_SIZE = 32;
+    private static final long LEAF_PALETTE_SEED = 50200030L;
 
     // ---- Animation constants ----
     private static final int LEAF_ANGLE_MIN_DEG = 15;
     private static final int LEAF_ANGLE_MAX_DEG = 60;
 
-    private static final float LEAF_START_DELAY_MAX = 0.6f;
+    private static final float LEAF_PHASE_SHIFT_MAX = 0.6f;
+    private static final int PASSES_PER_PERIOD = 2;
 
     private static final float LEAF_ANGLE_DUR_MIN = 1.0f;
     private static final float LEAF_ANGLE_DUR_RANGE = 1.5f;
@@ -52,59 +66,158 @@ public class Leaf extends GameObject {
 
     private static final float LEAF_SIZE_DUR_MIN = 1.2f;
     private static final float LEAF_SIZE_DUR_RANGE = 2.0f;
+    private static final IntSupplier EVERY_FRAME = () -> 1;
+
+    // ---- Precomputed sizes (scale is quantized so animation does not allocate) ----
+    private static final int SCALE_STEPS = 64;
+    private static final float SCALE_TABLE_MIN = LEAF_SCALE_MIN_BASE;
+    private static final float SCALE_TABLE_MAX = LEAF_SCALE_MAX_BASE + LEAF_SCALE_MAX_RANGE;
+    private static final int FLOAT_BITS = 32;
+    private static final long LOW_INT_MASK = 0xFFFFFFFFL;
+    private static final Map<Long, Vector2[]> SCALED_SIZES = new HashMap<>();
+
+    // ---- Animation state ----
+    private final Vector2 baseSize;
+    private final Renderable[] palette;
+    private final Vector2[] scaledSizes;
+    private final WorldClock clock;
+    private final IntSupplier updateStride;
+    private int animationSlot;
+    private long animatedFrame;
+    private int scaleIndex;
+    private float phaseShift;
+    private float maxAngle;
+    private float angleDuration;
+    private float minScale;
+    private float maxScale;
+    private float sizeDuration;
 
     /**
      * Constructs a new {@code Leaf} object.
      *
      * @param topLeft the top-left position of the leaf
      * @param size the dimensions of the leaf
+     * @param palette the leaf shades to choose from, see {@link #createPalette}
+     * @param clock the world clock driving the wind animation
+     */
+    public Leaf(Vector2 topLeft, Vector2 size, Renderable[] palette, WorldClock clock) {
+        this(topLeft, size, palette, clock, EVERY_FRAME);
+    }
+
+    /**
+     * Constructs a new {@code Leaf} object whose animation advances only every few frames.
+     *
+     * @param topLeft the top-left position of the leaf
+     * @param size the dimensions of the leaf
+     * @param palette the leaf shades to choose from, see {@link #createPalette}
+     * @param clock the world clock driving the wind animation
+     * @param updateStride the current number of frames per animation step, at least 1
      */
-    public Leaf(Vector2 topLeft, Vector2 size) {
+    public Leaf(Vector2 topLeft, Vector2 size, Renderable[] palette, WorldClock clock,
+                IntSupplier updateStride) {
         super(topLeft, size, null);
+        this.baseSize = size;
+        this.palette = palette;
+        this.clock = clock;
+        this.updateStride = updateStride;
+        this.scaledSizes = scaledSizesFor(size);
+        reset(topLeft);
+    }
+
+    /**
+     * Reinitializes the leaf at a new position: color, animation parameters and phase
+     * are derived from the position exactly as for a newly constructed leaf.
+     *
+     * @param topLeft the new top-left position of the leaf
+     */
+    public void reset(Vector2 topLeft) {
         long seed = (long) topLeft.x() * RANDOM_SEED_X_MULTIPLIER
                 + (long) topLeft.y() * RANDOM_SEED_Y_MULTIPLIER;
-        this.random = new Random(seed);
-        renderer().setRenderable(new RectangleRenderable(addRgbNoise(LEAF_BASE_COLOR, LEAF_COLOR_NOISE)));
-        animate(size);
+        random.setSeed(seed);
+        animationSlot = (int) (seed & Integer.MAX_VALUE);
+        animatedFrame = -1;
+
+        setTopLeftCorner(topLeft);
+        setDimensions(baseSize);
+        scaleIndex = -1;
+        renderer().setRenderableAngle(0f);
+        renderer().setRenderable(palette[random.nextInt(palette.length)]);
+
+        phaseShift = random.nextFloat() * LEAF_PHASE_SHIFT_MAX;
+
+        maxAngle = randInt(LEAF_ANGLE_MIN_DEG, LEAF_ANGLE_MAX_DEG);
+        angleDuration = LEAF_ANGLE_DUR_MIN + random.nextFloat() * LEAF_ANGLE_DUR_RANGE;
+
+        minScale = LEAF_SCALE_MIN_BASE + random.nextFloat() * LEAF_SCALE_MIN_RANGE;
+        maxScale = LEAF_SCALE_MAX_BASE + random.nextFloat() * LEAF_SCALE_MAX_RANGE;
+        sizeDuration = LEAF_SIZE_DUR_MIN + random.nextFloat() * LEAF_SIZE_DUR_RANGE;
+    }
+
+    /**
+     * Updates the wind animation: the angle and size swing back and forth between their
+     * extremes with a cubic ease, shifted by a per-leaf phase so the canopy moves
+     * asynchronously. The leaf is animated at most once per frame however many simulation
+     * ticks update it, and with an update stride above 1, frames not of this leaf are skipped.
+     *
+     * @param deltaTime time elapsed since the last update
+     */
+    @Override
+    public void update(float deltaTime) {
+        super.update(deltaTime);
+        long frame = clock.frame();
+        if (frame == animatedFrame) return;
+        animatedFrame = frame;
+        int stride = updateStride.getAsInt();
+        if (stride > 1 && (frame + animationSlot) % stride != 0) return;
+
+        float angleTime = clock.phase(-phaseShift, angleDuration * PASSES_PER_PERIOD);
+        renderer().setRenderableAngle(
+                Easing.backAndForth(-maxAngle, maxAngle, angleTime, angleDuration));
+
+        float sizeTime = clock.phase(-phaseShift, sizeDuration * PASSES_PER_PERIOD);
+        float scale = Easing.backAndForth(minScale, maxScale, sizeTime, sizeDuration);
+        int index = Math.round((scale - SCALE_TABLE_MIN) / (SCALE_TABLE_MAX - SCALE_TABLE_MIN)
+                * (SCALE_STEPS - 1));
+        if (index != scaleIndex) {
+            scaleIndex = index;
+            setDimensions(scaledSizes[index]);
+        }
     }
 
-    private void animate(Vector2 baseSize) {
-        final float startDelay = random.nextFloat() * LEAF_START_DELAY_MAX;
-
-        final float maxAngle = randInt(LEAF_ANGLE_MIN_DEG, LEAF_ANGLE_MAX_DEG);
-        final float angleDuration = LEAF_ANGLE_DUR_MIN + random.nextFloat() * LEAF_ANGLE_DUR_RANGE;
-
-        final float minScale = LEAF_SCALE_MIN_BASE + random.nextFloat() * LEAF_SCALE_MIN_RANGE;
-        final float maxScale = LEAF_SCALE_MAX_BASE + random.nextFloat() * LEAF_SCALE_MAX_RANGE;
-        final float sizeDuration = LEAF_SIZE_DUR_MIN + random.nextFloat() * LEAF_SIZE_DUR_RANGE;
-
-        new ScheduledTask(this, startDelay, false, () -> {
-            new Transition<>(
-                    this,
-                    angle -> renderer().setRenderableAngle(angle),
-                    -maxAngle, +maxAngle,
-                    Transition.CUBIC_INTERPOLATOR_FLOAT,
-                    angleDuration,
-                    Transition.TransitionType.TRANSITION_BACK_AND_FORTH,
-                    null
-            );
-
-            new Transition<>(
-                    this,
-                    scale -> setDimensions(baseSize.mult(scale)),
-                    minScale, maxScale,
-                    Transition.CUBIC_INTERPOLATOR_FLOAT,
-                    sizeDuration,
-                    Transition.TransitionType.TRANSITION_BACK_AND_FORTH,
-                    null
-            );
+    // all leaves of the same size share one table of their scaled sizes
+    private static Vector2[] scaledSizesFor(Vector2 size) {
+        long key = ((long) Float.floatToIntBits(size.x()) << FLOAT_BITS)
+                | (Float.floatToIntBits(size.y()) & LOW_INT_MASK);
+        return SCALED_SIZES.computeIfAbsent(key, k -> {
+            Vector2[] sizes = new Vector2[SCALE_STEPS];
+            for (int i = 0; i < SCALE_STEPS; i++) {
+                float scale = SCALE_TABLE_MIN
+                        + (SCALE_TABLE_MAX - SCALE_TABLE_MIN) * i / (SCALE_STEPS - 1);
+                sizes[i] = size.mult(scale);
+            }
+            return sizes;
         });
     }
 
-    private Color addRgbNoise(Color base, int noise) {
-        int r = clamp255(base.getRed()   + randInt(-noise, noise));
-        int g = clamp255(base.getGreen() + randInt(-noise, noise));
-        int b = clamp255(base.getBlue()  + randInt(-noise, noise));
+    /**
+     * Creates the shared palette of green leaf shades with slight RGB noise.
+     *
+     * @param shape creates the renderable drawing a single shade
+     * @return the palette, identical on every run
+     */
+    public static Renderable[] createPalette(Function<Color, Renderable> shape) {
+        Random paletteRandom = new Random(LEAF_PALETTE_SEED);
+        Renderable[] palette = new Renderable[LEAF_PALETTE_SIZE];
+        for (int i = 0; i < LEAF_PALETTE_SIZE; i++) {
+            palette[i] = shape.apply(addRgbNoise(paletteRandom, LEAF_BASE_COLOR, LEAF_COLOR_NOISE));
+        }
+        return palette;
+    }
+
+    private static Color addRgbNoise(Random random, Color base, int noise) {
+        int r = clamp255(base.getRed()   + randInt(random, -noise, noise));
+        int g = clamp255(base.getGreen() + randInt(random, -noise, noise));
+        int b = clamp255(base.getBlue()  + randInt(random, -noise, noise));
         return new Color(r, g, b);
     }
 
@@ -114,6 +227,10 @@ public class Leaf extends GameObject {
 
     // inclusive
     private int randInt(int min, int max) {
+        return randInt(random, min, max);
+    }
+
+    private static int randInt(Random random, int min, int max) {
         return min + random.nextInt(max - min + INCLUSIVE_RANGE_OFFSET);
     }
 }
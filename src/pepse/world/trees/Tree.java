@@ -1,12 +1,11 @@
 package pepse.world.trees;
 
 import danogl.GameObject;
-import danogl.components.GameObjectPhysics;
-import danogl.gui.rendering.RectangleRenderable;
 import danogl.util.Vector2;
+import pepse.world.DensityProfile;
 
-import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -20,61 +19,119 @@ import java.util.Random;
  *   <li>Fruits ({@link Fruit} objects)</li>
  * </ul>
  * The tree's structure and contents are generated deterministically
- * based on its ground position.
+ * based on its ground position; its overall shape is the {@link TreeSpec} of that position.
+ * Its parts are taken from a {@link TreePartsPool} so they can be recycled when the
+ * tree's chunk is released.
+ * <p>
+ * The canopy is stored compactly: the occupied leaf and fruit cells as indices into the
+ * canopy grid. Whether fruits are eaten is kept in a slice of a {@link FruitState},
+ * usually shared by the trees of a chunk. Leaf and fruit objects exist only while the
+ * canopy is materialized ({@link #materializeCanopy()}), i.e. while it is in the game;
+ * a leaf's shade and wind parameters derive from its position, so nothing else needs
+ * to be kept. A resident tree whose canopy is out of view holds only its trunk and a few
+ * small arrays. A canopy can also be materialized progressively: fruits first, then
+ * leaves in rings from the top of the trunk outward.
  * <p>
  * <b>Note:</b> The four-color palette applies only to fruits.
  * Leaves are always green and manage their own color noise and animation.
  */
 public class Tree {
 
-    private final Random random;
-    private static final long RANDOM_SEED_X_MULTIPLIER = 31L;
-    private static final long RANDOM_SEED_Y_MULTIPLIER = 1L;
-    private static final int INCLUSIVE_RANGE_OFFSET = 1;
-
-    // ---- Trunk constraints (pixels) ----
-    private static final int TRUNK_MIN_HEIGHT = 150;
-    private static final int TRUNK_MAX_HEIGHT = 350;
+    // ---- Trunk (pixels) ----
     private static final int TRUNK_WIDTH = 30;
     private static final String TRUNK_TAG = "surface";
 
     // ---- Canopy / Leaves (pixels) ----
     private static final int LEAF_SIZE = 20;              // each leaf is 20x20 (you set this)
-    private static final int CANOPY_MIN_HALF_SIZE = 100;  // half-size of square canopy
-    private static final int CANOPY_MAX_HALF_SIZE = 150;
-
-    private static final float LEAF_DENSITY = 0.70f;
-    private static final float FRUIT_DENSITY = 0.10f;     // fruits are rarer than leaves
 
     private static final float LEAF_SIZE_FACTOR = 0.8f;
     private static final float HALF_FACTOR = 0.5f;
 
-    // ---- Colors ----
-    private static final Color TRUNK_COLOR = new Color(100, 50, 20);
+    /** Dimensions of every leaf */
+    public static final Vector2 LEAF_DIMENSIONS = new Vector2(LEAF_SIZE, LEAF_SIZE);
+    /** The largest canopy half-side, in pixels, whose cells fit the short cell indices */
+    public static final int MAX_CANOPY_HALF_SIZE =
+            (int) Math.sqrt(Short.MAX_VALUE) * LEAF_SIZE / 2;
+
+    /** Dimensions of every fruit */
+    public static final Vector2 FRUIT_DIMENSIONS = LEAF_DIMENSIONS.mult(LEAF_SIZE_FACTOR);
+
+    private static final float FRUIT_INSET = (LEAF_SIZE - LEAF_SIZE * LEAF_SIZE_FACTOR) * HALF_FACTOR;
 
     // ---- Parts ----
+    private final TreePartsPool parts;
     private final GameObject trunk;
     private final List<Leaf> leaves = new ArrayList<>();
     private final List<Fruit> fruits = new ArrayList<>();
+    private boolean canopyMaterialized;
+
+    // ---- Compact canopy: cell = column * rows + row ----
+    private float canopyLeft;
+    private float canopyTop;
+    private int canopyRows;
+    private short[] leafCells;
+    private short[] fruitCells;
+    private final FruitState fruitState;
+    private final int firstFruit;   // the tree's slice of fruitState starts here
+
+    // ---- Bounding box (trunk and canopy) ----
+    private float boundsMinX;
+    private float boundsMinY;
+    private float boundsMaxX;
+    private float boundsMaxY;
 
 
     /**
-     * Constructs a new {@code Tree} rooted at the given ground position.
+     * Constructs a new {@code Tree} of the default density rooted at the given ground
+     * position, taking its parts from the given pool. The canopy is not materialized.
      *
      * @param groundTopLeft the top-left position of the tree trunk base
+     * @param parts         the pool providing trunk, leaves and fruits
      */
-    public Tree(Vector2 groundTopLeft) {
+    public Tree(Vector2 groundTopLeft, TreePartsPool parts) {
+        this(groundTopLeft, parts, DensityProfile.DEFAULT);
+    }
 
-        long seed = (long) groundTopLeft.x() * RANDOM_SEED_X_MULTIPLIER
-                + (long) groundTopLeft.y() * RANDOM_SEED_Y_MULTIPLIER;
-        this.random = new Random(seed);
+    /**
+     * Constructs a new {@code Tree} rooted at the given ground position,
+     * taking its parts from the given pool. The canopy is not materialized, and the tree
+     * keeps the state of its fruits on its own.
+     *
+     * @param groundTopLeft the top-left position of the tree trunk base
+     * @param parts         the pool providing trunk, leaves and fruits
+     * @param density       the density profile: canopy size, leaf and fruit density
+     */
+    public Tree(Vector2 groundTopLeft, TreePartsPool parts, DensityProfile density) {
+        this(Blueprint.draw((int) groundTopLeft.x(), (int) groundTopLeft.y(), density), parts);
+    }
 
-        int trunkHeight = randInt(TRUNK_MIN_HEIGHT, TRUNK_MAX_HEIGHT);
-        int trunkWidth  = TRUNK_WIDTH;
-        int canopyHalf  = randInt(CANOPY_MIN_HALF_SIZE, CANOPY_MAX_HALF_SIZE);
+    private Tree(Blueprint blueprint, TreePartsPool parts) {
+        this(blueprint, parts, new FruitState(blueprint.fruitCount()), 0);
+    }
 
-        this.trunk = createTrunk(groundTopLeft, trunkWidth, trunkHeight);
-        createLeavesAndFruits(canopyHalf);
+    /**
+     * Constructs a tree from a blueprint drawn in advance, possibly on another thread.
+     * Only the trunk is taken from the pool, so this must run on the pool's thread.
+     * The tree's fruits are the slots of the fruit state from {@code firstFruit} on.
+     */
+    Tree(Blueprint blueprint, TreePartsPool parts, FruitState fruitState, int firstFruit) {
+        this.parts = parts;
+        this.fruitState = fruitState;
+        this.firstFruit = firstFruit;
+        this.trunk = parts.acquireTrunk(
+                new Vector2(blueprint.trunkLeft, blueprint.trunkTop),
+                new Vector2(TRUNK_WIDTH, blueprint.trunkHeight), TRUNK_TAG);
+        canopyLeft = blueprint.canopyLeft;
+        canopyTop = blueprint.canopyTop;
+        canopyRows = blueprint.canopyRows;
+        leafCells = blueprint.leafCells;
+        fruitCells = blueprint.fruitCells;
+
+        boundsMinX = Math.min(blueprint.trunkLeft, canopyLeft);
+        boundsMinY = canopyTop;
+        boundsMaxX = Math.max(blueprint.trunkLeft + TRUNK_WIDTH,
+                canopyLeft + blueprint.canopySize);
+        boundsMaxY = blueprint.trunkTop + blueprint.trunkHeight;
     }
 
     // ===== Getters =====
@@ -84,72 +141,265 @@ public class Tree {
         return trunk;
     }
 
-    /** @return list of all leaves in the tree */
+    /** @return the leaves of the materialized canopy; empty while it is not materialized */
     public List<Leaf> getTreeLeaves() {
         return leaves;
     }
 
-    /** @return list of all fruits in the tree */
+    /** @return the fruits of the materialized canopy; empty while it is not materialized */
     public List<Fruit> getFruits() {
         return fruits;
     }
 
+    /** @return whether leaf and fruit objects currently exist for the canopy */
+    public boolean isCanopyMaterialized() {
+        return canopyMaterialized;
+    }
+
+    /**
+     * Creates the canopy's leaf and fruit objects from the pool, the fruits showing the
+     * tree's fruit state. Does nothing if the canopy is already materialized.
+     */
+    public void materializeCanopy() {
+        beginCanopy();
+        materializeNextLeaves(leafCells.length);
+    }
+
+    /**
+     * Starts materializing the canopy progressively: creates its fruits now, and leaves
+     * only through {@link #materializeNextLeaves}. Does nothing if the canopy is already
+     * materialized, completely or not.
+     */
+    public void beginCanopy() {
+        if (canopyMaterialized) return;
+        canopyMaterialized = true;
+
+        for (int i = 0; i < fruitCells.length; i++) {
+            fruits.add(parts.acquireFruit(
+                    getFruitLeft(i), getFruitTop(i), fruitState, firstFruit + i));
+        }
+    }
 
-    private GameObject createTrunk(Vector2 groundTopLeft, int trunkWidth, int trunkHeight) {
-        Vector2 trunkTopLeft = groundTopLeft.subtract(new Vector2(0, trunkHeight));
+    /**
+     * Creates the next leaves of a materialized canopy, in rings from the top of the trunk
+     * outward, and appends them to {@link #getTreeLeaves()}.
+     *
+     * @param maxLeaves the most leaves to create
+     * @return the number of leaves created; 0 once the canopy is complete
+     */
+    public int materializeNextLeaves(int maxLeaves) {
+        if (!canopyMaterialized) return 0;
+        int first = leaves.size();
+        int end = Math.min(leafCells.length, first + maxLeaves);
+        for (int i = first; i < end; i++) {
+            short cell = leafCells[i];
+            leaves.add(parts.acquireLeaf(cellLeft(cell), cellTop(cell)));
+        }
+        return end - first;
+    }
 
-        GameObject trunk = new GameObject(
-                trunkTopLeft,
-                new Vector2(trunkWidth, trunkHeight),
-                new RectangleRenderable(TRUNK_COLOR)
-        );
+    /**
+     * Returns the leaves after the first {@code keep} to the pool and removes them from
+     * {@link #getTreeLeaves()}; the canopy stays materialized, to be completed again by
+     * {@link #materializeNextLeaves}. The removed leaves must already be out of the game.
+     *
+     * @param keep the number of leaves to keep
+     */
+    public void dematerializeLeavesFrom(int keep) {
+        for (int i = leaves.size() - 1; i >= keep; i--) {
+            parts.releaseLeaf(leaves.remove(i));
+        }
+    }
 
-        trunk.physics().preventIntersectionsFromDirection(Vector2.ZERO);
-        trunk.physics().setMass(GameObjectPhysics.IMMOVABLE_MASS);
-        trunk.setTag(TRUNK_TAG);
-        return trunk;
+    /**
+     * Returns the leaf and fruit objects to the pool; the fruits' eaten state stays in the
+     * tree's fruit state. The canopy must already be removed from the game. Does nothing if
+     * the canopy is not materialized.
+     */
+    public void dematerializeCanopy() {
+        if (!canopyMaterialized) return;
+        canopyMaterialized = false;
+
+        for (Leaf leaf : leaves) {
+            parts.releaseLeaf(leaf);
+        }
+        for (Fruit fruit : fruits) {
+            parts.releaseFruit(fruit);
+        }
+        leaves.clear();
+        fruits.clear();
     }
 
-    private void createLeavesAndFruits(int canopyHalfSizePx) {
-        Vector2 trunkTopLeft = trunk.getTopLeftCorner();
-        Vector2 trunkDim = trunk.getDimensions();
+    /** @return the number of leaves on the tree, whether materialized or not */
+    public int getLeafCount() {
+        return leafCells.length;
+    }
 
-        // top-center of trunk
-        Vector2 trunkTopCenter = trunkTopLeft.add(new Vector2(trunkDim.x() * HALF_FACTOR, 0f));
+    /** @return the number of fruits on the tree, whether materialized or not */
+    public int getFruitCount() {
+        return fruitCells.length;
+    }
 
-        int canopySize = 2 * canopyHalfSizePx;
-        Vector2 canopyTopLeft = trunkTopCenter.subtract(new Vector2(
-                canopySize * HALF_FACTOR,
-                canopySize * HALF_FACTOR));
+    /**
+     * @param fruit a fruit index, below {@link #getFruitCount()}
+     * @return the left edge of the fruit
+     */
+    public float getFruitLeft(int fruit) {
+        return cellLeft(fruitCells[fruit]) + FRUIT_INSET;
+    }
 
-        int cols = canopySize / LEAF_SIZE;
-        int rows = canopySize / LEAF_SIZE;
+    /**
+     * @param fruit a fruit index, below {@link #getFruitCount()}
+     * @return the top edge of the fruit
+     */
+    public float getFruitTop(int fruit) {
+        return cellTop(fruitCells[fruit]) + FRUIT_INSET;
+    }
 
-        Vector2 leafSize = new Vector2(LEAF_SIZE, LEAF_SIZE);
-        Vector2 fruitSize = leafSize.mult(LEAF_SIZE_FACTOR);
+    /**
+     * @param fruit a fruit index, below {@link #getFruitCount()}
+     * @return the world time at which the fruit respawns if it is eaten, or negative
+     * infinity if it is not
+     */
+    public double getFruitRespawnTime(int fruit) {
+        return fruitState.getRespawnTime(firstFruit + fruit);
+    }
 
-        for (int i = 0; i < cols; i++) {
-            for (int j = 0; j < rows; j++) {
-                Vector2 cellTopLeft = canopyTopLeft.add(new Vector2(i * LEAF_SIZE, j * LEAF_SIZE));
+    /** @return the fruit state holding this tree's fruits, possibly among others */
+    public FruitState getFruitState() {
+        return fruitState;
+    }
 
-                if (random.nextFloat() <= LEAF_DENSITY) {
-                    Leaf leaf = new Leaf(cellTopLeft, leafSize);
-                    leaves.add(leaf);
-                }
+    /**
+     * Checks whether the tree's bounding box (trunk and canopy) overlaps a rectangle.
+     *
+     * @param minX left edge of the rectangle
+     * @param minY top edge of the rectangle
+     * @param maxX right edge of the rectangle
+     * @param maxY bottom edge of the rectangle
+     * @return true if the tree overlaps the rectangle
+     */
+    public boolean intersects(float minX, float minY, float maxX, float maxY) {
+        return boundsMaxX >= minX && boundsMinX <= maxX
+                && boundsMaxY >= minY && boundsMinY <= maxY;
+    }
+
+    /** @return the top edge of the tree's bounding box */
+    public float getTopY() {
+        return boundsMinY;
+    }
+
+    /** @return the left edge of the tree's bounding box; a canopy can overhang its chunk */
+    public float getLeftX() {
+        return boundsMinX;
+    }
+
+    /** @return the right edge of the tree's bounding box */
+    public float getRightX() {
+        return boundsMaxX;
+    }
+
+
+    /**
+     * Everything about a tree that is drawn from its position-seeded random sequence:
+     * trunk placement and the occupied canopy cells. Drawing touches no shared state,
+     * so blueprints of many trees can be drawn in parallel.
+     */
+    static final class Blueprint {
+        private float trunkLeft;
+        private float trunkTop;
+        private int trunkHeight;
+        private float canopyLeft;
+        private float canopyTop;
+        private int canopySize;
+        private int canopyRows;
+        private short[] leafCells;
+        private short[] fruitCells;
+
+        private Blueprint() {}
+
+        int fruitCount() {
+            return fruitCells.length;
+        }
+
+        // chooses the occupied cells; draws from the random sequence exactly as the canopy
+        // objects were always created, so trees keep their appearance
+        static Blueprint draw(int x, int groundY, DensityProfile density) {
+            Random random = new Random(TreeSpec.seedFor(x, groundY));
+            TreeSpec spec = TreeSpec.draw(random, x, groundY, density);
+            float leafDensity = density.getLeafDensity();
+            float fruitDensity = density.getFruitDensity();  // fruits are rarer than leaves
+
+            Blueprint blueprint = new Blueprint();
+            blueprint.trunkHeight = spec.getTrunkHeight();
+            blueprint.trunkLeft = x;
+            blueprint.trunkTop = groundY - spec.getTrunkHeight();
+
+            // canopy is centered on the top-center of the trunk
+            int canopySize = 2 * spec.getCanopyHalfSize();
+            blueprint.canopySize = canopySize;
+            blueprint.canopyLeft = blueprint.trunkLeft + TRUNK_WIDTH * HALF_FACTOR
+                    - canopySize * HALF_FACTOR;
+            blueprint.canopyTop = blueprint.trunkTop - canopySize * HALF_FACTOR;
+
+            int cols = canopySize / LEAF_SIZE;
+            int rows = canopySize / LEAF_SIZE;
+            blueprint.canopyRows = rows;
+
+            short[] leafBuffer = new short[cols * rows];
+            short[] fruitBuffer = new short[cols * rows];
+            int leafCount = 0;
+            int fruitCount = 0;
+            for (int i = 0; i < cols; i++) {
+                for (int j = 0; j < rows; j++) {
+                    short cell = (short) (i * rows + j);
+
+                    if (random.nextFloat() <= leafDensity) {
+                        leafBuffer[leafCount++] = cell;
+                    }
+
+                    if (random.nextFloat() <= fruitDensity) {
+                        fruitBuffer[fruitCount++] = cell;
+                    }
 
-                if (random.nextFloat() <= FRUIT_DENSITY) {
-                    // center fruit within the leaf cell
-                    Vector2 fruitTopLeft = cellTopLeft.add(leafSize.subtract(fruitSize).mult(HALF_FACTOR));
-                    Fruit fruit = new Fruit(fruitTopLeft, fruitSize);
-                    fruits.add(fruit);
                 }
+            }
+            blueprint.leafCells = byRing(leafBuffer, leafCount, cols, rows);
+            blueprint.fruitCells = Arrays.copyOf(fruitBuffer, fruitCount);
+            return blueprint;
+        }
 
+        // orders cells by square ring around the canopy's center (the top of the trunk),
+        // innermost first and otherwise keeping their order; a counting sort
+        private static short[] byRing(short[] cells, int count, int cols, int rows) {
+            int rings = Math.max(cols, rows) / 2 + 1;
+            int[] ringStarts = new int[rings + 1];
+            for (int i = 0; i < count; i++) {
+                ringStarts[ringOf(cells[i], cols, rows) + 1]++;
+            }
+            for (int ring = 0; ring < rings; ring++) {
+                ringStarts[ring + 1] += ringStarts[ring];
             }
+            short[] sorted = new short[count];
+            for (int i = 0; i < count; i++) {
+                sorted[ringStarts[ringOf(cells[i], cols, rows)]++] = cells[i];
+            }
+            return sorted;
+        }
+
+        // Chebyshev distance from the center, in doubled coordinates so it stays integral
+        private static int ringOf(short cell, int cols, int rows) {
+            int col = cell / rows;
+            int row = cell % rows;
+            return Math.max(Math.abs(2 * col - (cols - 1)), Math.abs(2 * row - (rows - 1))) / 2;
         }
     }
 
-    // inclusive
-    private int randInt(int min, int max) {
-        return min + random.nextInt(max - min + INCLUSIVE_RANGE_OFFSET);
+    private float cellLeft(short cell) {
+        return canopyLeft + (cell / canopyRows) * LEAF_SIZE;
+    }
+
+    private float cellTop(short cell) {
+        return canopyTop + (cell % canopyRows) * LEAF_SIZE;
     }
 }
@@ -0,0 +1,129 @@
+package pepse.world.trees;
+
+import danogl.GameObject;
+import danogl.components.GameObjectPhysics;
+import danogl.gui.rendering.Renderable;
+import danogl.util.Vector2;
+import pepse.utils.ObjectPool;
+import pepse.world.WorldClock;
+import pepse.world.daynight.Night;
+
+import java.awt.Color;
+
+/**
+ * Recycles the game objects that make up trees: trunks, leaves and fruits.
+ * <p>
+ * Parts handed out by the pool are already reset for their new position; parts of
+ * released trees are returned through {@link #release(Tree)} once they are removed
+ * from the game.
+ */
+public class TreePartsPool {
+
+    private static final Color TRUNK_COLOR = new Color(100, 50, 20);
+
+    private final Renderable trunkRenderable;
+    private final ObjectPool<GameObject> trunks = new ObjectPool<>(this::createTrunk);
+    private final ObjectPool<Leaf> leaves;
+    private final ObjectPool<Fruit> fruits;
+    private FruitListener fruitListener;
+    private int leafAnimationStride = 1;
+
+    /**
+     * Constructs an empty pool.
+     *
+     * @param leafSize  the dimensions of every leaf
+     * @param fruitSize the dimensions of every fruit
+     * @param night     the night cycle darkening all tree parts
+     * @param clock     the world clock driving leaf animations and fruit respawns
+     */
+    public TreePartsPool(Vector2 leafSize, Vector2 fruitSize, Night night, WorldClock clock) {
+        this.trunkRenderable = night.shadedRectangle(TRUNK_COLOR);
+        Renderable[] leafPalette = Leaf.createPalette(night::shadedRectangle);
+        Renderable[] fruitRenderables = Fruit.createRenderables(night::shadedOval);
+        this.leaves = new ObjectPool<>(() -> new Leaf(
+                Vector2.ZERO, leafSize, leafPalette, clock, () -> leafAnimationStride));
+        this.fruits = new ObjectPool<>(() -> new Fruit(Vector2.ZERO, fruitSize, fruitRenderables, clock));
+    }
+
+    /** @param fruitListener notified when any fruit is eaten or respawns, or null for none */
+    public void setFruitListener(FruitListener fruitListener) {
+        this.fruitListener = fruitListener;
+    }
+
+    /**
+     * Sets how often the leaves of all trees advance their wind animation.
+     *
+     * @param leafAnimationStride the number of frames per animation step, at least 1
+     */
+    public void setLeafAnimationStride(int leafAnimationStride) {
+        this.leafAnimationStride = leafAnimationStride;
+    }
+
+    /**
+     * Returns an immovable trunk with the given position, size and tag.
+     *
+     * @param topLeft    the top-left position of the trunk
+     * @param dimensions the dimensions of the trunk
+     * @param tag        the tag of the trunk
+     * @return a trunk ready to be added to the game
+     */
+    public GameObject acquireTrunk(Vector2 topLeft, Vector2 dimensions, String tag) {
+        GameObject trunk = trunks.acquire();
+        trunk.setTopLeftCorner(topLeft);
+        trunk.setDimensions(dimensions);
+        trunk.setTag(tag);
+        return trunk;
+    }
+
+    /**
+     * @param left the left edge of the leaf
+     * @param top  the top edge of the leaf
+     * @return a leaf reset for the given position
+     */
+    public Leaf acquireLeaf(float left, float top) {
+        Leaf leaf = leaves.acquire();
+        leaf.reset(new Vector2(left, top));
+        return leaf;
+    }
+
+    /**
+     * @param left  the left edge of the fruit
+     * @param top   the top edge of the fruit
+     * @param state the state of the fruit's chunk
+     * @param slot  the fruit's index in the state
+     * @return a fruit reset for the given position, showing the state of its slot
+     */
+    public Fruit acquireFruit(float left, float top, FruitState state, int slot) {
+        Fruit fruit = fruits.acquire();
+        fruit.reset(new Vector2(left, top), state, slot);
+        fruit.setListener(fruitListener);
+        return fruit;
+    }
+
+    /** @param leaf a leaf no longer in the game, returned to the pool */
+    public void releaseLeaf(Leaf leaf) {
+        leaves.release(leaf);
+    }
+
+    /** @param fruit a fruit no longer in the game, returned to the pool */
+    public void releaseFruit(Fruit fruit) {
+        fruits.release(fruit);
+    }
+
+    /**
+     * Returns all parts of a tree to the pool. The tree must not be used afterwards.
+     *
+     * @param tree a tree whose parts are no longer in the game
+     */
+    public void release(Tree tree) {
+        tree.dematerializeCanopy();
+        trunks.release(tree.getTreeBase());
+    }
+
+    private GameObject createTrunk() {
+        GameObject trunk = new GameObject(Vector2.ZERO, Vector2.ONES, trunkRenderable);
+        trunk.physics().preventIntersectionsFromDirection(Vector2.ZERO);
+        trunk.physics().setMass(GameObjectPhysics.IMMOVABLE_MASS);
+        return trunk;
+    }
+}
@@ -0,0 +1,106 @@
+package pepse.world.trees;
+
+import pepse.world.DensityProfile;
+
+import java.util.Random;
+
+/**
+ * The shape of a tree, without any of its game objects: where it stands, how tall its
+ * trunk is and how large its canopy is.
+ * <p>
+ * A tree's shape is a pure function of its ground position (and the density profile,
+ * which bounds the canopy size), so it can be computed on any
+ * thread - for example by offline tools - and is exactly the shape a {@link Tree} built
+ * at the same position gets.
+ */
+public final class TreeSpec {
+
+    private static final long RANDOM_SEED_X_MULTIPLIER = 31L;
+    private static final long RANDOM_SEED_Y_MULTIPLIER = 1L;
+    private static final int INCLUSIVE_RANGE_OFFSET = 1;
+
+    // ---- Trunk constraints (pixels) ----
+    private static final int TRUNK_MIN_HEIGHT = 150;
+    private static final int TRUNK_MAX_HEIGHT = 350;
+
+    private final int x;
+    private final int groundY;
+    private final int trunkHeight;
+    private final int canopyHalfSize;
+
+    private TreeSpec(int x, int groundY, int trunkHeight, int canopyHalfSize) {
+        this.x = x;
+        this.groundY = groundY;
+        this.trunkHeight = trunkHeight;
+        this.canopyHalfSize = canopyHalfSize;
+    }
+
+    /**
+     * Computes the shape of the tree standing at a ground position in a world of the
+     * default density.
+     *
+     * @param x       the left edge of the trunk
+     * @param groundY the top of the ground block the trunk stands on
+     * @return the tree's shape
+     */
+    public static TreeSpec at(int x, int groundY) {
+        return at(x, groundY, DensityProfile.DEFAULT);
+    }
+
+    /**
+     * Computes the shape of the tree standing at a ground position.
+     *
+     * @param x       the left edge of the trunk
+     * @param groundY the top of the ground block the trunk stands on
+     * @param density the density profile of the world
+     * @return the tree's shape
+     */
+    public static TreeSpec at(int x, int groundY, DensityProfile density) {
+        return draw(new Random(seedFor(x, groundY)), x, groundY, density);
+    }
+
+    /**
+     * @param x       the left edge of the trunk
+     * @param groundY the top of the ground block the trunk stands on
+     * @return the seed of the random sequence a tree at this position is built from
+     */
+    static long seedFor(float x, float groundY) {
+        return (long) x * RANDOM_SEED_X_MULTIPLIER + (long) groundY * RANDOM_SEED_Y_MULTIPLIER;
+    }
+
+    /**
+     * Draws the shape from the start of a tree's random sequence, leaving the sequence
+     * positioned where the tree continues with its canopy.
+     */
+    static TreeSpec draw(Random random, int x, int groundY, DensityProfile density) {
+        int trunkHeight = randInt(random, TRUNK_MIN_HEIGHT, TRUNK_MAX_HEIGHT);
+        int canopyHalfSize = randInt(
+                random, density.getCanopyMinHalfSize(), density.getCanopyMaxHalfSize());
+        return new TreeSpec(x, groundY, trunkHeight, canopyHalfSize);
+    }
+
+    /** @return the left edge of the trunk */
+    public int getX() {
+        return x;
+    }
+
+    /** @return the top of the ground block the trunk stands on */
+    public int getGroundY() {
+        return groundY;
+    }
+
+    /** @return the height of the trunk in pixels */
+    public int getTrunkHeight() {
+        return trunkHeight;
+    }
+
+    /** @return half the side of the square canopy in pixels */
+    public int getCanopyHalfSize() {
+        return canopyHalfSize;
+    }
+
+    // inclusive
+    private static int randInt(Random random, int min, int max) {
+        return min + random.nextInt(max - min + INCLUSIVE_RANGE_OFFSET);
+    }
+}